@@ -0,0 +1,224 @@
+package plugin;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.queries.function.docvalues.FloatDocValues;
+
+/**
+ * Jaccard or cosine similarity between the sorted title tokens stored in a field and the given sorted tokens
+ * <br> same results as main.Similarity: Jaccard on the distinct tokens, cosine on the token frequencies
+ * <br> documents without stored tokens, indexed before they were, are compared by their stored title,
+ * split as main.MatchingHelper.getTitleTokens does
+ * <br> the stored tokens are read for each document the function is computed for, so it is meant for
+ * post filters (frange with cost >= 100) and sorting, which only compute it for the documents matching the query
+ */
+public class TitleSimilarityValueSource extends ValueSource
+{
+	// same as main.MatchingHelper.PUNCTUATION_REGEX
+	private static final String PUNCTUATION_REGEX = "([\\p{Punct}\\s]+)";
+
+	private final String field;
+	private final String titleField;
+	private final String[] tokens;
+	private final boolean isCosine;
+
+	public TitleSimilarityValueSource(String field, String titleField, String[] tokens, boolean isCosine)
+	{
+		this.field = field;
+		this.titleField = titleField;
+		this.tokens = tokens;
+		this.isCosine = isCosine;
+	}
+
+	@Override
+	public FunctionValues getValues(@SuppressWarnings("rawtypes") Map context, AtomicReaderContext readerContext) throws IOException
+	{
+		final AtomicReader reader = readerContext.reader();
+		final Set<String> fieldsToLoad = new HashSet<String>(Arrays.asList(field, titleField));
+
+		return new FloatDocValues(this)
+		{
+			@Override
+			public float floatVal(int doc)
+			{
+				try
+				{
+					Document document = reader.document(doc, fieldsToLoad);
+					String[] documentTokens = document.getValues(field);
+
+					if (documentTokens.length == 0)
+					{
+						documentTokens = getTitleTokens(document.get(titleField));
+					}
+
+					return (float)(isCosine ? computeCosineSimilarity(tokens, documentTokens) : computeJaccardSimilarity(tokens, documentTokens));
+				}
+				catch (IOException ex)
+				{
+					throw new RuntimeException("ERROR while reading field '" + field + "' of document " + doc, ex);
+				}
+			}
+		};
+	}
+
+	/**
+	 * returns the sorted lowercase tokens of the title, none if there is no title
+	 */
+	static String[] getTitleTokens(String title)
+	{
+		if (title == null)
+		{
+			return new String[0];
+		}
+
+		String[] titleTokens = title.toLowerCase().split(PUNCTUATION_REGEX);
+		Arrays.sort(titleTokens);
+
+		return titleTokens;
+	}
+
+	/**
+	 * computes Jaccard similarity between sorted token lists, counting the distinct tokens while merging them
+	 */
+	static double computeJaccardSimilarity(String[] tokens1, String[] tokens2)
+	{
+		int nrOfCommonWords = 0;
+		int nrOfWords = 0;
+
+		int i = 0;
+		int j = 0;
+
+		while (i < tokens1.length || j < tokens2.length)
+		{
+			int comparison = compareTokens(tokens1, i, tokens2, j);
+			String word = comparison <= 0 ? tokens1[i] : tokens2[j];
+
+			if (comparison == 0)
+			{
+				nrOfCommonWords++;
+			}
+
+			nrOfWords++;
+
+			i = skipToken(tokens1, i, word);
+			j = skipToken(tokens2, j, word);
+		}
+
+		return nrOfWords != 0 ? nrOfCommonWords / (double)nrOfWords : 0;
+	}
+
+	/**
+	 * computes cosine similarity between sorted token lists, word frequencies are the lengths of the runs of equal tokens
+	 */
+	static double computeCosineSimilarity(String[] tokens1, String[] tokens2)
+	{
+		int innerProduct = 0;
+		int norm1 = 0;
+		int norm2 = 0;
+
+		int i = 0;
+		int j = 0;
+
+		while (i < tokens1.length || j < tokens2.length)
+		{
+			int comparison = compareTokens(tokens1, i, tokens2, j);
+			String word = comparison <= 0 ? tokens1[i] : tokens2[j];
+
+			int frequency1 = skipToken(tokens1, i, word) - i;
+			int frequency2 = skipToken(tokens2, j, word) - j;
+
+			innerProduct += frequency1 * frequency2;
+			norm1 += frequency1 * frequency1;
+			norm2 += frequency2 * frequency2;
+
+			i += frequency1;
+			j += frequency2;
+		}
+
+		double norms = Math.sqrt(norm1) * Math.sqrt(norm2);
+
+		return norms != 0.0 ? innerProduct / norms : 0.0;
+	}
+
+	/**
+	 * compares the current tokens of two sorted lists, a list at its end sorts after the other one
+	 */
+	private static int compareTokens(String[] tokens1, int i, String[] tokens2, int j)
+	{
+		if (i == tokens1.length)
+		{
+			return 1;
+		}
+
+		if (j == tokens2.length)
+		{
+			return -1;
+		}
+
+		return tokens1[i].compareTo(tokens2[j]);
+	}
+
+	/**
+	 * returns the position after the run of tokens equal to the given word, starting at i
+	 */
+	private static int skipToken(String[] tokens, int i, String word)
+	{
+		while (i < tokens.length && tokens[i].equals(word))
+		{
+			i++;
+		}
+
+		return i;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (!(o instanceof TitleSimilarityValueSource))
+		{
+			return false;
+		}
+
+		TitleSimilarityValueSource other = (TitleSimilarityValueSource)o;
+
+		return field.equals(other.field) && titleField.equals(other.titleField) && Arrays.equals(tokens, other.tokens) && isCosine == other.isCosine;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return ((field.hashCode() * 31 + titleField.hashCode()) * 31 + Arrays.hashCode(tokens)) * 31 + (isCosine ? 1 : 0);
+	}
+
+	@Override
+	public String description()
+	{
+		return "titlesim(" + field + ",\"" + join(tokens) + "\"," + (isCosine ? "cosine" : "jaccard") + ")";
+	}
+
+	private static String join(String[] tokens)
+	{
+		StringBuilder joined = new StringBuilder();
+
+		for (int i = 0; i < tokens.length; i++)
+		{
+			if (i > 0)
+			{
+				joined.append(' ');
+			}
+
+			joined.append(tokens[i]);
+		}
+
+		return joined.toString();
+	}
+}
@@ -0,0 +1,50 @@
+package plugin;
+
+import java.util.Arrays;
+
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.solr.search.FunctionQParser;
+import org.apache.solr.search.ValueSourceParser;
+
+/**
+ * parses titlesim(field, "tokens", measure), the similarity between the title tokens stored in the field
+ * and the given tokens, measure being jaccard (default) or cosine
+ * <br> the tokens are lowercase, split on punctuation and whitespace, and separated by single spaces;
+ * empty tokens are kept, as main.Similarity counts them
+ * <br> documents indexed without the token field are compared by their stored title, as the program does
+ * <br> written against the Solr 4.0 API, Solr 4.1 and later throw org.apache.solr.search.SyntaxError instead of ParseException
+ * <br> registered in solrconfig.xml: &lt;valueSourceParser name="titlesim" class="plugin.TitleSimilarityValueSourceParser" /&gt;
+ */
+public class TitleSimilarityValueSourceParser extends ValueSourceParser
+{
+	private static final String JACCARD = "jaccard";
+	private static final String COSINE = "cosine";
+
+	// stored field read when a document has no tokens
+	private static final String TITLE_FIELD = "title";
+
+	@Override
+	public ValueSource parse(FunctionQParser fp) throws ParseException
+	{
+		String field = fp.parseArg();
+		String tokens = fp.parseArg();
+
+		if (field == null || tokens == null)
+		{
+			throw new ParseException("titlesim(field, \"tokens\", measure) expected");
+		}
+
+		String measure = fp.hasMoreArguments() ? fp.parseArg() : JACCARD;
+
+		if (!JACCARD.equalsIgnoreCase(measure) && !COSINE.equalsIgnoreCase(measure))
+		{
+			throw new ParseException("'" + JACCARD + "'/'" + COSINE + "' expected for titlesim measure instead of '" + measure + "'");
+		}
+
+		String[] sortedTokens = tokens.split(" ", -1);
+		Arrays.sort(sortedTokens);
+
+		return new TitleSimilarityValueSource(field, TITLE_FIELD, sortedTokens, COSINE.equalsIgnoreCase(measure));
+	}
+}
@@ -0,0 +1,137 @@
+package main;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.solr.common.SolrDocumentList;
+
+/**
+ * in-memory cache of candidate hits, keyed by the query parameters
+ * <br> CiteSeer versions of a paper and generic titles produce the same queries, they are answered once;
+ * concurrent identical queries wait for the one already in flight instead of being sent again
+ * <br> the cache holds at most the given number of hits, least recently used pages are dropped first;
+ * cached pages are shared between records and must not be modified
+ */
+public class CandidateCache
+{
+	private final long maxHits;
+
+	// cached pages, least recently used first
+	private final LinkedHashMap<String, SolrDocumentList> pages = new LinkedHashMap<String, SolrDocumentList>(16, 0.75f, true);
+	private long numberOfHits = 0;
+
+	// queries being answered, shared by the threads asking for them
+	private final Map<String, FutureTask<SolrDocumentList>> inFlight = new HashMap<String, FutureTask<SolrDocumentList>>();
+
+	private long hits = 0;
+	private long coalesced = 0;
+	private long misses = 0;
+
+	public CandidateCache(long maxHits)
+	{
+		this.maxHits = maxHits;
+	}
+
+	/**
+	 * returns the cached page for the key, or the page computed by the loader, once for all concurrent callers
+	 */
+	public SolrDocumentList get(String key, Callable<SolrDocumentList> loader) throws Exception
+	{
+		FutureTask<SolrDocumentList> task;
+		boolean isOwner = false;
+
+		synchronized (this)
+		{
+			SolrDocumentList page = pages.get(key);
+
+			if (page != null)
+			{
+				hits++;
+				return page;
+			}
+
+			task = inFlight.get(key);
+
+			if (task != null)
+			{
+				coalesced++;
+			}
+			else
+			{
+				misses++;
+
+				task = new FutureTask<SolrDocumentList>(loader);
+				inFlight.put(key, task);
+				isOwner = true;
+			}
+		}
+
+		if (isOwner)
+		{
+			task.run();
+
+			synchronized (this)
+			{
+				inFlight.remove(key);
+
+				try
+				{
+					add(key, task.get());
+				}
+				catch (ExecutionException ex)
+				{
+					// failed queries are not cached, the error is reported below
+				}
+			}
+		}
+
+		try
+		{
+			return task.get();
+		}
+		catch (ExecutionException ex)
+		{
+			throw ex.getCause() instanceof Exception ? (Exception)ex.getCause() : ex;
+		}
+	}
+
+	/**
+	 * caches the page, then drops the least recently used pages until the cache fits its limit
+	 */
+	private void add(String key, SolrDocumentList page)
+	{
+		// a page larger than the cache is not kept
+		if (page.size() > maxHits)
+		{
+			return;
+		}
+
+		pages.put(key, page);
+		numberOfHits += page.size();
+
+		Iterator<SolrDocumentList> iterator = pages.values().iterator();
+
+		while (numberOfHits > maxHits && iterator.hasNext())
+		{
+			numberOfHits -= iterator.next().size();
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * logs the share of queries answered without a request of their own
+	 */
+	public synchronized void close()
+	{
+		long requests = hits + coalesced + misses;
+
+		MatchingHelper.logMessage(null, "Candidate cache: " + hits + " hits, " + coalesced + " coalesced, " + misses + " misses"
+				+ (requests > 0 ? String.format(", hit rate %.2f%%", 100.0 * (hits + coalesced) / requests) : "")
+				+ ", " + pages.size() + " pages (" + numberOfHits + " hits) cached");
+	}
+}
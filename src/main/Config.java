@@ -12,23 +12,66 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * @author Alina Maria Ciobanu
  */
 public class Config 
 {	
+	// value of list and pattern parameters that turns them off
+	private static final String NONE = "none";
+	
 	// input parameters
 
 	public static double THRESHOLD = 0.7;
 	public static boolean BUILD_INDEX = true;
+	public static int INDEX_THREADS = 1;
+	public static int INDEX_QUEUE_SIZE = 1000;
+	public static int PARSE_RANGES = 1;
+	public static boolean BULK_LOAD = false;
+	public static int UPDATE_THREADS = 4;
+	public static int UPDATE_QUEUE_SIZE = 10;
+	public static int COMMIT_WITHIN = 0;
+	public static int SOFT_COMMIT_SIZE = 0;
+	public static boolean OPTIMIZE_INDEX = true;
+	public static boolean RESUME_INDEX = false;
+	public static int CHECKPOINT_INTERVAL = 500000;
+	public static boolean DELTA_INDEX = false;
+	public static int INDEX_SHARDS = 1;
+	public static boolean MERGE_SHARDS = true;
+	public static boolean COMPILE_SNAPSHOT = false;
+	public static String INCLUDE_TYPES = "";
+	public static String EXCLUDE_TYPES = MatchingHelper.Element.WWW.toString().toLowerCase();
+	public static String EXCLUDE_TITLES = "Home Page";
 	public static boolean REMOVE_STOPWORDS = true;
 	public static boolean WRITE_MERGED_FILES = true;
 	public static boolean OUTPUT_STATS = true;
 	public static int N_GRAMS = 3;
+	public static int RARE_TOKENS = 0;
+	public static boolean EXACT_MATCH = false;
+	public static boolean AUTHOR_BLOCKING = false;
+	public static double AUTHOR_BLOCKING_THRESHOLD = 0.3;
+	public static boolean SERVER_SIDE_SIMILARITY = false;
+	public static int SERVER_SIDE_HITS = 10;
 	public static int PAGE_LIMIT = 1;		
+	public static int YEAR_WINDOW = 1;
+	public static boolean NORMALIZE_VENUE = false;
+	public static int MAX_HITS = 0;
+	public static int CASCADE_MAX_HITS = 100;
+	public static int HITS_PAGE_SIZE = 1000;
+	public static int QUERY_THREADS = 1;
+	public static int MAX_CONNECTIONS = 32;
+	public static int CONNECTION_TIMEOUT = 15000;
+	public static int SOCKET_TIMEOUT = 0;
+	public static int KEEP_ALIVE = 60000;
+	public static int QUERY_CACHE_SIZE = 1024;
+	public static int CANDIDATE_CACHE_SIZE = 0;
 	public static String OPERATOR = MatchingHelper.Operator.OR.toString().toUpperCase();
 	public static String SIMILARITY = MatchingHelper.Similarity.JACCARD.toString().toUpperCase();
+	public static String QUERY_MODE = MatchingHelper.QueryMode.NGRAM.toString().toUpperCase();
+	public static String BACKEND = MatchingHelper.Backend.SOLR.toString().toUpperCase();
 
 	// matching features to use
 
@@ -36,14 +79,36 @@ public class Config
 	public static boolean MATCH_AUTHORS;			
 	public static boolean MATCH_PAGE_COUNT;		
 	public static boolean MATCH_VENUE;			
+	public static boolean MATCH_YEAR;
 
 	// paths
 	
 	// SOLR url
 	public static String BASE_URL = "http://localhost:8983/solr/collection1"; 
+	
+	// folder of the local Lucene index, when 'BACKEND' option = lucene
+	public static String INDEX_PATH = "";
 
-	// DBLP xml file
+	// DBLP xml file, plain or gzip-compressed (.gz)
 	public static String DBLP_PATH = "";
+	
+	// binary snapshot compiled from the DBLP xml file, indexed instead of the xml file when set
+	public static String SNAPSHOT_PATH = "";
+	
+	// file in which the indexing progress is saved after each hard commit, empty to disable checkpoints
+	public static String CHECKPOINT_PATH = "";
+	
+	// file in which the keys and the highest mdate of the indexed DBLP records are saved, when 'DELTA_INDEX' option = true
+	public static String DELTA_STATE_PATH = "";
+	
+	// folder in which query responses are cached between runs, empty to disable the cache
+	public static String QUERY_CACHE_PATH = "";
+	
+	// file in which the document frequencies of the title tokens are kept between runs, empty to read them from the index on each run
+	public static String TERM_STATS_PATH = "";
+	
+	// file in which the fingerprints of the indexed titles are kept between runs, empty to read them from the index on each run
+	public static String TITLE_FINGERPRINTS_PATH = "";
 
 	// file containing the paths for the CiteSeer xml files
 	public static String CITESEER_PATH = "";
@@ -86,15 +151,61 @@ public class Config
 		static List<String> OUTPUT_STATS = Arrays.asList("-st", "--stats", "OUTPUT_STATS");
 		static List<String> OPERATOR = Arrays.asList("-o", "--operator", "OPERATOR");
 		static List<String> SIMILARITY = Arrays.asList("-sim", "--similarity", "SIMILARITY");
+		static List<String> QUERY_MODE = Arrays.asList("-qm", "--query_mode", "QUERY_MODE");
 		static List<String> N_GRAMS = Arrays.asList("-n", "--n_grams", "N_GRAMS");
+		static List<String> RARE_TOKENS = Arrays.asList("-rt", "--rare_tokens", "RARE_TOKENS");
+		static List<String> EXACT_MATCH = Arrays.asList("-em", "--exact_match", "EXACT_MATCH");
+		static List<String> AUTHOR_BLOCKING = Arrays.asList("-ab", "--author_blocking", "AUTHOR_BLOCKING");
+		static List<String> AUTHOR_BLOCKING_THRESHOLD = Arrays.asList("-abt", "--author_blocking_threshold", "AUTHOR_BLOCKING_THRESHOLD");
+		static List<String> SERVER_SIDE_SIMILARITY = Arrays.asList("-sss", "--server_side_similarity", "SERVER_SIDE_SIMILARITY");
+		static List<String> SERVER_SIDE_HITS = Arrays.asList("-ssh", "--server_side_hits", "SERVER_SIDE_HITS");
 		static List<String> PAGE_LIMIT = Arrays.asList("-pl", "--page_limit", "PAGE_LIMIT");
+		static List<String> MAX_HITS = Arrays.asList("-mh", "--max_hits", "MAX_HITS");
+		static List<String> CASCADE_MAX_HITS = Arrays.asList("-cmh", "--cascade_max_hits", "CASCADE_MAX_HITS");
+		static List<String> HITS_PAGE_SIZE = Arrays.asList("-hps", "--hits_page_size", "HITS_PAGE_SIZE");
+		static List<String> QUERY_THREADS = Arrays.asList("-qt", "--query_threads", "QUERY_THREADS");
+		static List<String> MAX_CONNECTIONS = Arrays.asList("-mc", "--max_connections", "MAX_CONNECTIONS");
+		static List<String> CONNECTION_TIMEOUT = Arrays.asList("-cto", "--connection_timeout", "CONNECTION_TIMEOUT");
+		static List<String> SOCKET_TIMEOUT = Arrays.asList("-sto", "--socket_timeout", "SOCKET_TIMEOUT");
+		static List<String> KEEP_ALIVE = Arrays.asList("-ka", "--keep_alive", "KEEP_ALIVE");
 		static List<String> BUILD_INDEX = Arrays.asList("-i", "--build_index", "BUILD_INDEX");
+		static List<String> INDEX_THREADS = Arrays.asList("-it", "--index_threads", "INDEX_THREADS");
+		static List<String> INDEX_QUEUE_SIZE = Arrays.asList("-iq", "--index_queue_size", "INDEX_QUEUE_SIZE");
+		static List<String> PARSE_RANGES = Arrays.asList("-pr", "--parse_ranges", "PARSE_RANGES");
+		static List<String> BULK_LOAD = Arrays.asList("-bl", "--bulk_load", "BULK_LOAD");
+		static List<String> UPDATE_THREADS = Arrays.asList("-ut", "--update_threads", "UPDATE_THREADS");
+		static List<String> UPDATE_QUEUE_SIZE = Arrays.asList("-uq", "--update_queue_size", "UPDATE_QUEUE_SIZE");
+		static List<String> COMMIT_WITHIN = Arrays.asList("-cw", "--commit_within", "COMMIT_WITHIN");
+		static List<String> SOFT_COMMIT_SIZE = Arrays.asList("-sc", "--soft_commit_size", "SOFT_COMMIT_SIZE");
+		static List<String> OPTIMIZE_INDEX = Arrays.asList("-oi", "--optimize_index", "OPTIMIZE_INDEX");
 		static List<String> MATCH_TITLE = Arrays.asList("MATCH_TITLE");
 		static List<String> MATCH_AUTHORS = Arrays.asList("MATCH_AUTHORS");
 		static List<String> MATCH_PAGE_COUNT = Arrays.asList("MATCH_PAGE_COUNT");
 		static List<String> MATCH_VENUE = Arrays.asList("MATCH_VENUE");
+		static List<String> MATCH_YEAR = Arrays.asList("MATCH_YEAR");
+		static List<String> YEAR_WINDOW = Arrays.asList("-yw", "--year_window", "YEAR_WINDOW");
+		static List<String> NORMALIZE_VENUE = Arrays.asList("-nv", "--normalize_venue", "NORMALIZE_VENUE");
 		static List<String> BASE_URL = Arrays.asList("-u", "--url", "BASE_URL");
+		static List<String> BACKEND = Arrays.asList("-be", "--backend", "BACKEND");
+		static List<String> INDEX_PATH = Arrays.asList("-ip", "--index_path", "INDEX_PATH");
 		static List<String> DBLP_PATH = Arrays.asList("-dp", "--dblp_path", "DBLP_PATH");
+		static List<String> CHECKPOINT_PATH = Arrays.asList("-ckp", "--checkpoint_path", "CHECKPOINT_PATH");
+		static List<String> RESUME_INDEX = Arrays.asList("-ri", "--resume_index", "RESUME_INDEX");
+		static List<String> CHECKPOINT_INTERVAL = Arrays.asList("-ci", "--checkpoint_interval", "CHECKPOINT_INTERVAL");
+		static List<String> DELTA_INDEX = Arrays.asList("-di", "--delta_index", "DELTA_INDEX");
+		static List<String> DELTA_STATE_PATH = Arrays.asList("-dsp", "--delta_state_path", "DELTA_STATE_PATH");
+		static List<String> QUERY_CACHE_PATH = Arrays.asList("-qcp", "--query_cache_path", "QUERY_CACHE_PATH");
+		static List<String> QUERY_CACHE_SIZE = Arrays.asList("-qcs", "--query_cache_size", "QUERY_CACHE_SIZE");
+		static List<String> CANDIDATE_CACHE_SIZE = Arrays.asList("-ccs", "--candidate_cache_size", "CANDIDATE_CACHE_SIZE");
+		static List<String> TERM_STATS_PATH = Arrays.asList("-tsp", "--term_stats_path", "TERM_STATS_PATH");
+		static List<String> TITLE_FINGERPRINTS_PATH = Arrays.asList("-tfp", "--title_fingerprints_path", "TITLE_FINGERPRINTS_PATH");
+		static List<String> INDEX_SHARDS = Arrays.asList("-is", "--index_shards", "INDEX_SHARDS");
+		static List<String> MERGE_SHARDS = Arrays.asList("-ms", "--merge_shards", "MERGE_SHARDS");
+		static List<String> COMPILE_SNAPSHOT = Arrays.asList("-cs", "--compile_snapshot", "COMPILE_SNAPSHOT");
+		static List<String> SNAPSHOT_PATH = Arrays.asList("-snp", "--snapshot_path", "SNAPSHOT_PATH");
+		static List<String> INCLUDE_TYPES = Arrays.asList("-ity", "--include_types", "INCLUDE_TYPES");
+		static List<String> EXCLUDE_TYPES = Arrays.asList("-ety", "--exclude_types", "EXCLUDE_TYPES");
+		static List<String> EXCLUDE_TITLES = Arrays.asList("-eti", "--exclude_titles", "EXCLUDE_TITLES");
 		static List<String> CITESEER_PATH = Arrays.asList("-cp", "--citeseer_path", "CITESEER_PATH");
 		static List<String> MERGED_FOLDER_PATH = Arrays.asList("-mp", "--merged_path", "MERGED_FOLDER_PATH");
 		static List<String> STATS_FILE_PATH = Arrays.asList("-sp", "--stats_path", "STATS_FILE_PATH");
@@ -291,6 +402,19 @@ public class Config
 				System.exit(1);
 			}
 		}
+		else if (Parameters.QUERY_MODE.contains(parameter))
+		{
+			if (MatchingHelper.QueryMode.NGRAM.toString().equals(value.toUpperCase()) || MatchingHelper.QueryMode.PREFIX.toString().equals(value.toUpperCase())
+					|| MatchingHelper.QueryMode.CASCADE.toString().equals(value.toUpperCase()) || MatchingHelper.QueryMode.MIN_MATCH.toString().equals(value.toUpperCase()))
+			{
+				QUERY_MODE = value.toUpperCase();
+			}
+			else
+			{
+				System.out.println("'NGRAM'/'PREFIX'/'CASCADE'/'MIN_MATCH' expected for QUERY_MODE value");
+				System.exit(1);
+			}
+		}
 		else if (Parameters.N_GRAMS.contains(parameter))
 		{
 			if (!"".equals(value) && !"0".equals(value))
@@ -321,10 +445,156 @@ public class Config
 				}
 			}
 		}
+		else if (Parameters.RARE_TOKENS.contains(parameter))
+		{
+			RARE_TOKENS = parseInteger(Parameters.RARE_TOKENS, value);
+		}
+		else if (Parameters.EXACT_MATCH.contains(parameter))
+		{
+			EXACT_MATCH = Boolean.parseBoolean(value);
+		}
+		else if (Parameters.AUTHOR_BLOCKING.contains(parameter))
+		{
+			AUTHOR_BLOCKING = Boolean.parseBoolean(value);
+		}
+		else if (Parameters.AUTHOR_BLOCKING_THRESHOLD.contains(parameter))
+		{
+			try
+			{
+				AUTHOR_BLOCKING_THRESHOLD = Double.parseDouble(value);
+			}
+			catch (NumberFormatException ex)
+			{
+				System.out.println("Number expected for AUTHOR_BLOCKING_THRESHOLD value");
+				System.exit(1);
+			}
+		}
+		else if (Parameters.SERVER_SIDE_SIMILARITY.contains(parameter))
+		{
+			SERVER_SIDE_SIMILARITY = Boolean.parseBoolean(value);
+		}
+		else if (Parameters.SERVER_SIDE_HITS.contains(parameter))
+		{
+			SERVER_SIDE_HITS = parseInteger(Parameters.SERVER_SIDE_HITS, value);
+		}
+		else if (Parameters.MAX_HITS.contains(parameter))
+		{
+			MAX_HITS = parseInteger(Parameters.MAX_HITS, value);
+		}
+		else if (Parameters.CASCADE_MAX_HITS.contains(parameter))
+		{
+			CASCADE_MAX_HITS = parseInteger(Parameters.CASCADE_MAX_HITS, value);
+		}
+		else if (Parameters.HITS_PAGE_SIZE.contains(parameter))
+		{
+			HITS_PAGE_SIZE = Math.max(1, parseInteger(Parameters.HITS_PAGE_SIZE, value));
+		}
+		else if (Parameters.QUERY_THREADS.contains(parameter))
+		{
+			QUERY_THREADS = Math.max(1, parseInteger(Parameters.QUERY_THREADS, value));
+		}
+		else if (Parameters.MAX_CONNECTIONS.contains(parameter))
+		{
+			MAX_CONNECTIONS = Math.max(1, parseInteger(Parameters.MAX_CONNECTIONS, value));
+		}
+		else if (Parameters.CONNECTION_TIMEOUT.contains(parameter))
+		{
+			CONNECTION_TIMEOUT = parseInteger(Parameters.CONNECTION_TIMEOUT, value);
+		}
+		else if (Parameters.SOCKET_TIMEOUT.contains(parameter))
+		{
+			SOCKET_TIMEOUT = parseInteger(Parameters.SOCKET_TIMEOUT, value);
+		}
+		else if (Parameters.KEEP_ALIVE.contains(parameter))
+		{
+			KEEP_ALIVE = parseInteger(Parameters.KEEP_ALIVE, value);
+		}
 		else if (Parameters.BUILD_INDEX.contains(parameter))
 		{
 			BUILD_INDEX = Boolean.parseBoolean(value);
 		}
+		else if (Parameters.INDEX_THREADS.contains(parameter))
+		{
+			INDEX_THREADS = parseInteger(Parameters.INDEX_THREADS, value);
+		}
+		else if (Parameters.INDEX_QUEUE_SIZE.contains(parameter))
+		{
+			INDEX_QUEUE_SIZE = parseInteger(Parameters.INDEX_QUEUE_SIZE, value);
+		}
+		else if (Parameters.PARSE_RANGES.contains(parameter))
+		{
+			PARSE_RANGES = parseInteger(Parameters.PARSE_RANGES, value);
+		}
+		else if (Parameters.BULK_LOAD.contains(parameter))
+		{
+			BULK_LOAD = Boolean.parseBoolean(value);
+		}
+		else if (Parameters.UPDATE_THREADS.contains(parameter))
+		{
+			UPDATE_THREADS = parseInteger(Parameters.UPDATE_THREADS, value);
+		}
+		else if (Parameters.UPDATE_QUEUE_SIZE.contains(parameter))
+		{
+			UPDATE_QUEUE_SIZE = parseInteger(Parameters.UPDATE_QUEUE_SIZE, value);
+		}
+		else if (Parameters.COMMIT_WITHIN.contains(parameter))
+		{
+			COMMIT_WITHIN = parseInteger(Parameters.COMMIT_WITHIN, value);
+		}
+		else if (Parameters.SOFT_COMMIT_SIZE.contains(parameter))
+		{
+			SOFT_COMMIT_SIZE = parseInteger(Parameters.SOFT_COMMIT_SIZE, value);
+		}
+		else if (Parameters.OPTIMIZE_INDEX.contains(parameter))
+		{
+			OPTIMIZE_INDEX = Boolean.parseBoolean(value);
+		}
+		else if (Parameters.RESUME_INDEX.contains(parameter))
+		{
+			RESUME_INDEX = Boolean.parseBoolean(value);
+		}
+		else if (Parameters.CHECKPOINT_INTERVAL.contains(parameter))
+		{
+			CHECKPOINT_INTERVAL = parseInteger(Parameters.CHECKPOINT_INTERVAL, value);
+		}
+		else if (Parameters.DELTA_INDEX.contains(parameter))
+		{
+			DELTA_INDEX = Boolean.parseBoolean(value);
+		}
+		else if (Parameters.INDEX_SHARDS.contains(parameter))
+		{
+			INDEX_SHARDS = parseInteger(Parameters.INDEX_SHARDS, value);
+		}
+		else if (Parameters.MERGE_SHARDS.contains(parameter))
+		{
+			MERGE_SHARDS = Boolean.parseBoolean(value);
+		}
+		else if (Parameters.COMPILE_SNAPSHOT.contains(parameter))
+		{
+			COMPILE_SNAPSHOT = Boolean.parseBoolean(value);
+		}
+		else if (Parameters.INCLUDE_TYPES.contains(parameter))
+		{
+			INCLUDE_TYPES = parseRecordTypes(Parameters.INCLUDE_TYPES, value);
+		}
+		else if (Parameters.EXCLUDE_TYPES.contains(parameter))
+		{
+			EXCLUDE_TYPES = parseRecordTypes(Parameters.EXCLUDE_TYPES, value);
+		}
+		else if (Parameters.EXCLUDE_TITLES.contains(parameter))
+		{
+			EXCLUDE_TITLES = NONE.equalsIgnoreCase(value) ? "" : value;
+			
+			try
+			{
+				Pattern.compile(EXCLUDE_TITLES);
+			}
+			catch (PatternSyntaxException ex)
+			{
+				System.out.println("Regular expression expected for EXCLUDE_TITLES value");
+				System.exit(1);
+			}
+		}
 		else if (Parameters.MATCH_TITLE.contains(parameter))
 		{
 			MATCH_TITLE = Boolean.parseBoolean(value);
@@ -341,14 +611,74 @@ public class Config
 		{
 			MATCH_VENUE = Boolean.parseBoolean(value);
 		}
+		else if (Parameters.MATCH_YEAR.contains(parameter))
+		{
+			MATCH_YEAR = Boolean.parseBoolean(value);
+		}
+		else if (Parameters.YEAR_WINDOW.contains(parameter))
+		{
+			YEAR_WINDOW = Math.max(0, parseInteger(Parameters.YEAR_WINDOW, value));
+		}
+		else if (Parameters.NORMALIZE_VENUE.contains(parameter))
+		{
+			NORMALIZE_VENUE = Boolean.parseBoolean(value);
+		}
 		else if (Parameters.BASE_URL.contains(parameter))
 		{
 			BASE_URL = value;
 		}
+		else if (Parameters.BACKEND.contains(parameter))
+		{
+			if (MatchingHelper.Backend.SOLR.toString().equals(value.toUpperCase()) || MatchingHelper.Backend.LUCENE.toString().equals(value.toUpperCase()))
+			{
+				BACKEND = value.toUpperCase();
+			}
+			else
+			{
+				System.out.println("'SOLR'/'LUCENE' expected for BACKEND value");
+				System.exit(1);
+			}
+		}
+		else if (Parameters.INDEX_PATH.contains(parameter))
+		{
+			INDEX_PATH = MatchingHelper.replaceFileSeparators(value);
+		}
 		else if (Parameters.DBLP_PATH.contains(parameter))
 		{
 			DBLP_PATH = MatchingHelper.replaceFileSeparators(value);
 		}
+		else if (Parameters.CHECKPOINT_PATH.contains(parameter))
+		{
+			CHECKPOINT_PATH = MatchingHelper.replaceFileSeparators(value);
+		}
+		else if (Parameters.DELTA_STATE_PATH.contains(parameter))
+		{
+			DELTA_STATE_PATH = MatchingHelper.replaceFileSeparators(value);
+		}
+		else if (Parameters.QUERY_CACHE_PATH.contains(parameter))
+		{
+			QUERY_CACHE_PATH = MatchingHelper.replaceFileSeparators(value);
+		}
+		else if (Parameters.TERM_STATS_PATH.contains(parameter))
+		{
+			TERM_STATS_PATH = MatchingHelper.replaceFileSeparators(value);
+		}
+		else if (Parameters.TITLE_FINGERPRINTS_PATH.contains(parameter))
+		{
+			TITLE_FINGERPRINTS_PATH = MatchingHelper.replaceFileSeparators(value);
+		}
+		else if (Parameters.QUERY_CACHE_SIZE.contains(parameter))
+		{
+			QUERY_CACHE_SIZE = parseInteger(Parameters.QUERY_CACHE_SIZE, value);
+		}
+		else if (Parameters.CANDIDATE_CACHE_SIZE.contains(parameter))
+		{
+			CANDIDATE_CACHE_SIZE = parseInteger(Parameters.CANDIDATE_CACHE_SIZE, value);
+		}
+		else if (Parameters.SNAPSHOT_PATH.contains(parameter))
+		{
+			SNAPSHOT_PATH = MatchingHelper.replaceFileSeparators(value);
+		}
 		else if (Parameters.CITESEER_PATH.contains(parameter))
 		{
 			CITESEER_PATH = MatchingHelper.replaceFileSeparators(value);
@@ -402,6 +732,7 @@ public class Config
 			MATCH_PAGE_COUNT = value.contains("p");
 			MATCH_TITLE = value.contains("t");
 			MATCH_VENUE = value.contains("v");
+			MATCH_YEAR = value.contains("y");
 		}
 		else
 		{
@@ -409,6 +740,46 @@ public class Config
 		}
 	}
 	
+	/**
+	 * parses an integer parameter value, exits if the value is not a number
+	 */
+	private static int parseInteger(List<String> parameter, String value)
+	{
+		try
+		{
+			return Integer.parseInt(value);
+		}
+		catch (NumberFormatException ex)
+		{
+			System.out.println("Integer expected for " + parameter.get(parameter.size() - 1) + " value");
+			System.exit(1);
+		}
+		
+		return 0;
+	}
+	
+	/**
+	 * parses a comma-separated list of DBLP types of publications ('none' for an empty list), exits if a type is unknown
+	 */
+	private static String parseRecordTypes(List<String> parameter, String value)
+	{
+		if (NONE.equalsIgnoreCase(value))
+		{
+			return "";
+		}
+		
+		for (String type : value.toLowerCase().split(","))
+		{
+			if (!MatchingHelper.elementsList.contains(type))
+			{
+				System.out.println("Comma-separated list of " + MatchingHelper.elementsList + " expected for " + parameter.get(parameter.size() - 1) + " value");
+				System.exit(1);
+			}
+		}
+		
+		return value.toLowerCase();
+	}
+	
 	public static String print()
 	{
 		StringBuilder stringBuilder = new StringBuilder();
@@ -422,11 +793,81 @@ public class Config
 		String buildIndexString = (BUILD_INDEX + "").toUpperCase();
 		if (BUILD_INDEX)
 		{
-			buildIndexString += ", from file '" + DBLP_PATH + "'";
+			buildIndexString += "".equals(SNAPSHOT_PATH) ? ", from file '" + DBLP_PATH + "'" : ", from snapshot '" + SNAPSHOT_PATH + "'";
+			
+			buildIndexString += ", record types " + MatchingHelper.getIndexedElementsList();
+			
+			if (!"".equals(EXCLUDE_TITLES))
+			{
+				buildIndexString += ", skipping titles matching '" + EXCLUDE_TITLES + "'";
+			}
+			
+			if (INDEX_THREADS > 1)
+			{
+				buildIndexString += ", using " + INDEX_THREADS + " threads (queue size " + INDEX_QUEUE_SIZE + ")";
+			}
+			
+			if (PARSE_RANGES > 1)
+			{
+				buildIndexString += ", parsed in " + PARSE_RANGES + " parallel byte ranges";
+			}
+			
+			if (BULK_LOAD)
+			{
+				buildIndexString += ", bulk load with " + UPDATE_THREADS + " update threads (queue size " + UPDATE_QUEUE_SIZE + ")";
+			}
+			
+			if (COMMIT_WITHIN > 0)
+			{
+				buildIndexString += ", commit within " + COMMIT_WITHIN + " ms";
+			}
+			
+			if (SOFT_COMMIT_SIZE > 0)
+			{
+				buildIndexString += ", soft commit every " + SOFT_COMMIT_SIZE + " documents";
+			}
+			
+			if (OPTIMIZE_INDEX)
+			{
+				buildIndexString += ", optimized at the end";
+			}
+			
+			if (!"".equals(CHECKPOINT_PATH))
+			{
+				buildIndexString += ", checkpoint every " + CHECKPOINT_INTERVAL + " documents in file '" + CHECKPOINT_PATH + "'";
+				
+				if (RESUME_INDEX)
+				{
+					buildIndexString += ", resuming from the last checkpoint";
+				}
+			}
+			
+			if (DELTA_INDEX)
+			{
+				buildIndexString += ", delta indexing against the state in file '" + DELTA_STATE_PATH + "'";
+			}
+			
+			if (INDEX_SHARDS > 1)
+			{
+				buildIndexString += ", written by " + INDEX_SHARDS + " parallel shard writers";
+				
+				if (MERGE_SHARDS)
+				{
+					buildIndexString += ", merged at the end";
+				}
+			}
 		}
 		
 		stringBuilder.append(String.format(format, Parameters.BUILD_INDEX.get(2) + ": ", buildIndexString));
 		
+		String compileSnapshotString = (COMPILE_SNAPSHOT + "").toUpperCase();
+		if (COMPILE_SNAPSHOT)
+		{
+			compileSnapshotString += ", from file '" + DBLP_PATH + "' into '" + SNAPSHOT_PATH + "'";
+		}
+		
+		stringBuilder.append(String.format(format, Parameters.COMPILE_SNAPSHOT.get(2) + ": ", compileSnapshotString));
+		
 		String removeStopWordsString = (REMOVE_STOPWORDS + "").toUpperCase();
 		if (REMOVE_STOPWORDS)
 		{
@@ -451,13 +892,34 @@ public class Config
 		
 		stringBuilder.append(String.format(format, Parameters.OUTPUT_STATS.get(2) + ": ", outputStatsString));
 		
-		String operatorString = OPERATOR.toUpperCase();
-		if ("OR".equals(operatorString))
+		stringBuilder.append(String.format(format, Parameters.QUERY_MODE.get(2) + ": ", QUERY_MODE));
+		
+		if (MatchingHelper.QueryMode.NGRAM.toString().equals(QUERY_MODE))
 		{
-			operatorString += ", using " + N_GRAMS + "-grams";
+			String operatorString = OPERATOR.toUpperCase();
+			if ("OR".equals(operatorString))
+			{
+				operatorString += ", using " + (RARE_TOKENS > 0 ? "the " + RARE_TOKENS + " rarest " : "") + N_GRAMS + "-grams";
+			}
+			
+			stringBuilder.append(String.format(format, Parameters.OPERATOR.get(2) + ": ", operatorString));
 		}
+		else if (MatchingHelper.QueryMode.CASCADE.toString().equals(QUERY_MODE))
+		{
+			stringBuilder.append(String.format(format, Parameters.CASCADE_MAX_HITS.get(2) + ": ", "title phrase, then " + N_GRAMS + "-grams, then words for the " + CASCADE_MAX_HITS + " best hits"));
+		}
+		
+		stringBuilder.append(String.format(format, Parameters.EXACT_MATCH.get(2) + ": ", EXACT_MATCH));
+		stringBuilder.append(String.format(format, Parameters.AUTHOR_BLOCKING.get(2) + ": ", AUTHOR_BLOCKING ? "true, with title threshold " + AUTHOR_BLOCKING_THRESHOLD + " within " + YEAR_WINDOW + " years" : "false"));
 		
-		stringBuilder.append(String.format(format, Parameters.OPERATOR.get(2) + ": ", operatorString));
+		stringBuilder.append(String.format(format, Parameters.SERVER_SIDE_SIMILARITY.get(2) + ": ", SERVER_SIDE_SIMILARITY ? "true, returning the " + SERVER_SIDE_HITS + " most similar hits" : "false"));
+		
+		String maxHitsString = MAX_HITS > 0 ? MAX_HITS + "" : "ALL";
+		maxHitsString += ", in pages of " + HITS_PAGE_SIZE + " hits";
+		
+		stringBuilder.append(String.format(format, Parameters.MAX_HITS.get(2) + ": ", maxHitsString));
+		stringBuilder.append(String.format(format, Parameters.QUERY_THREADS.get(2) + ": ", QUERY_THREADS));
+		stringBuilder.append(String.format(format, Parameters.CANDIDATE_CACHE_SIZE.get(2) + ": ", CANDIDATE_CACHE_SIZE > 0 ? CANDIDATE_CACHE_SIZE + " hits" : "DISABLED"));
 				
 		String matchingFeaturesString = "";
 		
@@ -475,13 +937,27 @@ public class Config
 		}
 		if (MATCH_VENUE)
 		{
-			matchingFeaturesString+= Parameters.MATCH_VENUE.get(0).toString().substring(6) + ", ";
+			matchingFeaturesString+= Parameters.MATCH_VENUE.get(0).toString().substring(6) + (NORMALIZE_VENUE ? " (normalized)" : "") + ", ";
+		}
+		if (MATCH_YEAR)
+		{
+			matchingFeaturesString += Parameters.MATCH_YEAR.get(0).toString().substring(6) + " (with year window " + YEAR_WINDOW + "), ";
 		}
 		
 		stringBuilder.append(String.format(format, "MATCHING FEATURES: ", 
 				matchingFeaturesString.contains(",") ? matchingFeaturesString.substring(0, matchingFeaturesString.lastIndexOf(",")) : ""));
 		
-		stringBuilder.append(String.format(format, Parameters.BASE_URL.get(2) + ": ", BASE_URL));
+		String shardsString = INDEX_SHARDS > 1 && !MERGE_SHARDS ? ", queried across " + INDEX_SHARDS + " shards" : "";
+		
+		if (MatchingHelper.Backend.LUCENE.toString().equals(BACKEND))
+		{
+			stringBuilder.append(String.format(format, Parameters.BACKEND.get(2) + ": ", BACKEND + ", in folder '" + INDEX_PATH + "'" + shardsString));
+		}
+		else
+		{
+			stringBuilder.append(String.format(format, Parameters.BACKEND.get(2) + ": ", BACKEND + shardsString));
+			stringBuilder.append(String.format(format, Parameters.BASE_URL.get(2) + ": ", BASE_URL + ", " + MAX_CONNECTIONS + " pooled connections"));
+		}
 		stringBuilder.append(String.format(format, Parameters.CITESEER_PATH.get(2) + ": ", "'" + CITESEER_PATH + "'"));
 		if (MATCH_PAGE_COUNT)
 		{
@@ -489,6 +965,21 @@ public class Config
 		}
 		
 		stringBuilder.append(String.format(format, Parameters.HITS_FILE_PATH.get(2) + ": ", "'" + HITS_FILE_PATH + "'"));
+		if (!"".equals(QUERY_CACHE_PATH))
+		{
+			stringBuilder.append(String.format(format, Parameters.QUERY_CACHE_PATH.get(2) + ": ", "'" + QUERY_CACHE_PATH + "', at most " + QUERY_CACHE_SIZE + " MB"));
+		}
+		
+		if (!"".equals(TERM_STATS_PATH))
+		{
+			stringBuilder.append(String.format(format, Parameters.TERM_STATS_PATH.get(2) + ": ", "'" + TERM_STATS_PATH + "'"));
+		}
+		
+		if (EXACT_MATCH && !"".equals(TITLE_FINGERPRINTS_PATH))
+		{
+			stringBuilder.append(String.format(format, Parameters.TITLE_FINGERPRINTS_PATH.get(2) + ": ", "'" + TITLE_FINGERPRINTS_PATH + "'"));
+		}
+		
 		stringBuilder.append(String.format(format, Parameters.LOG_FILE_PATH.get(2) + ": ", "'" + LOG_FILE_PATH + "'"));
 		stringBuilder.append(String.format(format, Parameters.VERBOSITY_LEVEL.get(2) + ": ", VERBOSITY_LEVEL));
 		
@@ -509,11 +1000,56 @@ public class Config
 		help.append(String.format(format, Parameters.OUTPUT_STATS.get(0), Parameters.OUTPUT_STATS.get(1)));
 		help.append(String.format(format, Parameters.OPERATOR.get(0), Parameters.OPERATOR.get(1)));
 		help.append(String.format(format, Parameters.SIMILARITY.get(0), Parameters.SIMILARITY.get(1)));
+		help.append(String.format(format, Parameters.QUERY_MODE.get(0), Parameters.QUERY_MODE.get(1)));
 		help.append(String.format(format, Parameters.N_GRAMS.get(0), Parameters.N_GRAMS.get(1)));
+		help.append(String.format(format, Parameters.RARE_TOKENS.get(0), Parameters.RARE_TOKENS.get(1)));
+		help.append(String.format(format, Parameters.EXACT_MATCH.get(0), Parameters.EXACT_MATCH.get(1)));
+		help.append(String.format(format, Parameters.AUTHOR_BLOCKING.get(0), Parameters.AUTHOR_BLOCKING.get(1)));
+		help.append(String.format(format, Parameters.AUTHOR_BLOCKING_THRESHOLD.get(0), Parameters.AUTHOR_BLOCKING_THRESHOLD.get(1)));
 		help.append(String.format(format, Parameters.PAGE_LIMIT.get(0), Parameters.PAGE_LIMIT.get(1)));
+		help.append(String.format(format, Parameters.YEAR_WINDOW.get(0), Parameters.YEAR_WINDOW.get(1)));
+		help.append(String.format(format, Parameters.NORMALIZE_VENUE.get(0), Parameters.NORMALIZE_VENUE.get(1)));
+		help.append(String.format(format, Parameters.SERVER_SIDE_SIMILARITY.get(0), Parameters.SERVER_SIDE_SIMILARITY.get(1)));
+		help.append(String.format(format, Parameters.SERVER_SIDE_HITS.get(0), Parameters.SERVER_SIDE_HITS.get(1)));
+		help.append(String.format(format, Parameters.MAX_HITS.get(0), Parameters.MAX_HITS.get(1)));
+		help.append(String.format(format, Parameters.CASCADE_MAX_HITS.get(0), Parameters.CASCADE_MAX_HITS.get(1)));
+		help.append(String.format(format, Parameters.HITS_PAGE_SIZE.get(0), Parameters.HITS_PAGE_SIZE.get(1)));
+		help.append(String.format(format, Parameters.QUERY_THREADS.get(0), Parameters.QUERY_THREADS.get(1)));
+		help.append(String.format(format, Parameters.CANDIDATE_CACHE_SIZE.get(0), Parameters.CANDIDATE_CACHE_SIZE.get(1)));
+		help.append(String.format(format, Parameters.MAX_CONNECTIONS.get(0), Parameters.MAX_CONNECTIONS.get(1)));
+		help.append(String.format(format, Parameters.CONNECTION_TIMEOUT.get(0), Parameters.CONNECTION_TIMEOUT.get(1)));
+		help.append(String.format(format, Parameters.SOCKET_TIMEOUT.get(0), Parameters.SOCKET_TIMEOUT.get(1)));
+		help.append(String.format(format, Parameters.KEEP_ALIVE.get(0), Parameters.KEEP_ALIVE.get(1)));
 		help.append(String.format(format, Parameters.BUILD_INDEX.get(0), Parameters.BUILD_INDEX.get(1)));
+		help.append(String.format(format, Parameters.INDEX_THREADS.get(0), Parameters.INDEX_THREADS.get(1)));
+		help.append(String.format(format, Parameters.INDEX_QUEUE_SIZE.get(0), Parameters.INDEX_QUEUE_SIZE.get(1)));
+		help.append(String.format(format, Parameters.PARSE_RANGES.get(0), Parameters.PARSE_RANGES.get(1)));
+		help.append(String.format(format, Parameters.BULK_LOAD.get(0), Parameters.BULK_LOAD.get(1)));
+		help.append(String.format(format, Parameters.UPDATE_THREADS.get(0), Parameters.UPDATE_THREADS.get(1)));
+		help.append(String.format(format, Parameters.UPDATE_QUEUE_SIZE.get(0), Parameters.UPDATE_QUEUE_SIZE.get(1)));
+		help.append(String.format(format, Parameters.COMMIT_WITHIN.get(0), Parameters.COMMIT_WITHIN.get(1)));
+		help.append(String.format(format, Parameters.SOFT_COMMIT_SIZE.get(0), Parameters.SOFT_COMMIT_SIZE.get(1)));
+		help.append(String.format(format, Parameters.OPTIMIZE_INDEX.get(0), Parameters.OPTIMIZE_INDEX.get(1)));
 		help.append(String.format(format, Parameters.BASE_URL.get(0), Parameters.BASE_URL.get(1)));
+		help.append(String.format(format, Parameters.BACKEND.get(0), Parameters.BACKEND.get(1)));
+		help.append(String.format(format, Parameters.INDEX_PATH.get(0), Parameters.INDEX_PATH.get(1)));
 		help.append(String.format(format, Parameters.DBLP_PATH.get(0), Parameters.DBLP_PATH.get(1)));
+		help.append(String.format(format, Parameters.CHECKPOINT_PATH.get(0), Parameters.CHECKPOINT_PATH.get(1)));
+		help.append(String.format(format, Parameters.RESUME_INDEX.get(0), Parameters.RESUME_INDEX.get(1)));
+		help.append(String.format(format, Parameters.CHECKPOINT_INTERVAL.get(0), Parameters.CHECKPOINT_INTERVAL.get(1)));
+		help.append(String.format(format, Parameters.DELTA_INDEX.get(0), Parameters.DELTA_INDEX.get(1)));
+		help.append(String.format(format, Parameters.DELTA_STATE_PATH.get(0), Parameters.DELTA_STATE_PATH.get(1)));
+		help.append(String.format(format, Parameters.QUERY_CACHE_PATH.get(0), Parameters.QUERY_CACHE_PATH.get(1)));
+		help.append(String.format(format, Parameters.QUERY_CACHE_SIZE.get(0), Parameters.QUERY_CACHE_SIZE.get(1)));
+		help.append(String.format(format, Parameters.TERM_STATS_PATH.get(0), Parameters.TERM_STATS_PATH.get(1)));
+		help.append(String.format(format, Parameters.TITLE_FINGERPRINTS_PATH.get(0), Parameters.TITLE_FINGERPRINTS_PATH.get(1)));
+		help.append(String.format(format, Parameters.INDEX_SHARDS.get(0), Parameters.INDEX_SHARDS.get(1)));
+		help.append(String.format(format, Parameters.MERGE_SHARDS.get(0), Parameters.MERGE_SHARDS.get(1)));
+		help.append(String.format(format, Parameters.COMPILE_SNAPSHOT.get(0), Parameters.COMPILE_SNAPSHOT.get(1)));
+		help.append(String.format(format, Parameters.SNAPSHOT_PATH.get(0), Parameters.SNAPSHOT_PATH.get(1)));
+		help.append(String.format(format, Parameters.INCLUDE_TYPES.get(0), Parameters.INCLUDE_TYPES.get(1)));
+		help.append(String.format(format, Parameters.EXCLUDE_TYPES.get(0), Parameters.EXCLUDE_TYPES.get(1)));
+		help.append(String.format(format, Parameters.EXCLUDE_TITLES.get(0), Parameters.EXCLUDE_TITLES.get(1)));
 		help.append(String.format(format, Parameters.CITESEER_PATH.get(0), Parameters.CITESEER_PATH.get(1)));
 		help.append(String.format(format, Parameters.MERGED_FOLDER_PATH.get(0), Parameters.MERGED_FOLDER_PATH.get(1)));
 		help.append(String.format(format, Parameters.STATS_FILE_PATH.get(0), Parameters.STATS_FILE_PATH.get(1)));
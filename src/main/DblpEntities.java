@@ -0,0 +1,86 @@
+package main;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * named character entities declared in dblp.dtd (the ISO 8859-1 set), resolved without loading the DTD
+ * <br> references in text are resolved by the reader, those in attribute values by the parser, from {@link #openDeclarations()}
+ */
+public class DblpEntities
+{
+	// entity names for the characters U+00A0 to U+00FF, in code point order
+	private static final String[] LATIN1_ENTITIES = {
+		"nbsp", "iexcl", "cent", "pound", "curren", "yen", "brvbar", "sect",
+		"uml", "copy", "ordf", "laquo", "not", "shy", "reg", "macr",
+		"deg", "plusmn", "sup2", "sup3", "acute", "micro", "para", "middot",
+		"cedil", "sup1", "ordm", "raquo", "frac14", "frac12", "frac34", "iquest",
+		"Agrave", "Aacute", "Acirc", "Atilde", "Auml", "Aring", "AElig", "Ccedil",
+		"Egrave", "Eacute", "Ecirc", "Euml", "Igrave", "Iacute", "Icirc", "Iuml",
+		"ETH", "Ntilde", "Ograve", "Oacute", "Ocirc", "Otilde", "Ouml", "times",
+		"Oslash", "Ugrave", "Uacute", "Ucirc", "Uuml", "Yacute", "THORN", "szlig",
+		"agrave", "aacute", "acirc", "atilde", "auml", "aring", "aelig", "ccedil",
+		"egrave", "eacute", "ecirc", "euml", "igrave", "iacute", "icirc", "iuml",
+		"eth", "ntilde", "ograve", "oacute", "ocirc", "otilde", "ouml", "divide",
+		"oslash", "ugrave", "uacute", "ucirc", "uuml", "yacute", "thorn", "yuml"
+	};
+
+	private static final char FIRST_LATIN1_CHARACTER = '\u00A0';
+
+	private static final Map<String, Character> entities;
+
+	// entity declarations read by the parser in place of dblp.dtd
+	private static final byte[] declarations;
+
+	static
+	{
+		entities = new HashMap<String, Character>();
+
+		StringBuilder dtd = new StringBuilder();
+
+		for (int i = 0; i < LATIN1_ENTITIES.length; i++)
+		{
+			entities.put(LATIN1_ENTITIES[i], (char)(FIRST_LATIN1_CHARACTER + i));
+
+			dtd.append("<!ENTITY ").append(LATIN1_ENTITIES[i]).append(" \"&#").append(FIRST_LATIN1_CHARACTER + i).append(";\">\n");
+		}
+
+		declarations = dtd.toString().getBytes(Charset.forName("US-ASCII"));
+
+		// predefined XML entities, in case the parser reports them as references
+		entities.put("amp", '&');
+		entities.put("lt", '<');
+		entities.put("gt", '>');
+		entities.put("quot", '"');
+		entities.put("apos", '\'');
+	}
+
+	/**
+	 * returns the declarations of the entities, without the predefined XML ones, as the content of a DTD
+	 * <br> without them the parser drops the references in attribute values, e.g. in the keys of the entries
+	 */
+	public static InputStream openDeclarations()
+	{
+		return new ByteArrayInputStream(declarations);
+	}
+
+	/**
+	 * appends the character for the named entity, or the reference itself if the entity is unknown
+	 */
+	public static void append(StringBuilder builder, String name)
+	{
+		Character character = entities.get(name);
+
+		if (character != null)
+		{
+			builder.append(character.charValue());
+		}
+		else
+		{
+			builder.append('&').append(name).append(';');
+		}
+	}
+}
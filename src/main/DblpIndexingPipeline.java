@@ -0,0 +1,354 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.solr.common.SolrInputDocument;
+
+/**
+ * multi-stage DBLP indexing: one reader thread parses the XML stream into records,
+ * a pool of workers builds Solr documents from them, and a sender thread ships batches to Solr
+ * <br> the stages are connected by bounded queues, so a slow stage blocks the ones before it;
+ * records are recycled through a free list, so the reader only fills a fixed set of them
+ * <br> with more than one parse range, the file is split by {@link DblpSplitParser} instead and
+ * each range thread both parses and builds documents
+ */
+public class DblpIndexingPipeline
+{
+	// end-of-stream markers, compared by reference
+	private static final DblpRecord END_OF_RECORDS = new DblpRecord();
+	private static final IndexedRecord END_OF_DOCUMENTS = new IndexedRecord(null, 0, 0);
+
+	private final SolrHandler solrHandler;
+	private final int numberOfWorkers;
+	private final int numberOfRanges;
+
+	private final BlockingQueue<DblpRecord> freeRecords;
+	private final BlockingQueue<DblpRecord> records;
+	private final BlockingQueue<IndexedRecord> documents;
+
+	public DblpIndexingPipeline(SolrHandler solrHandler, int numberOfWorkers, int numberOfRanges, int queueSize)
+	{
+		this.solrHandler = solrHandler;
+		this.numberOfWorkers = numberOfWorkers;
+		this.numberOfRanges = numberOfRanges;
+
+		freeRecords = new ArrayBlockingQueue<DblpRecord>(queueSize + numberOfWorkers);
+		records = new ArrayBlockingQueue<DblpRecord>(queueSize + numberOfWorkers);
+		documents = new ArrayBlockingQueue<IndexedRecord>(queueSize);
+
+		for (int i = 0; i < queueSize + numberOfWorkers; i++)
+		{
+			freeRecords.add(new DblpRecord());
+		}
+	}
+
+	/**
+	 * indexes the DBLP XML file, returns when all documents have been sent to Solr
+	 */
+	public void run(final String filePath) throws Exception
+	{
+		if (numberOfRanges > 1 && DblpInput.isCompressed(filePath))
+		{
+			MatchingHelper.logMessage(null, "Compressed DBLP file '" + filePath + "' cannot be split into byte ranges, parsing it sequentially");
+		}
+		else if (numberOfRanges > 1 && DblpSnapshot.isSnapshot(filePath))
+		{
+			MatchingHelper.logMessage(null, "DBLP snapshot '" + filePath + "' does not need parsing, reading it sequentially");
+		}
+		else if (numberOfRanges > 1)
+		{
+			runRanges(filePath);
+			
+			return;
+		}
+		
+		Thread reader = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				readRecords(filePath);
+			}
+		}, "dblp-reader");
+
+		List<Thread> workers = new ArrayList<Thread>();
+
+		for (int i = 0; i < numberOfWorkers; i++)
+		{
+			workers.add(new Thread(new Runnable()
+			{
+				public void run()
+				{
+					buildDocuments();
+				}
+			}, "dblp-worker-" + i));
+		}
+
+		Thread sender = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				sendDocuments();
+			}
+		}, "dblp-sender");
+
+		sender.start();
+
+		for (Thread worker : workers)
+		{
+			worker.start();
+		}
+
+		reader.start();
+		reader.join();
+
+		for (Thread worker : workers)
+		{
+			worker.join();
+		}
+
+		documents.put(END_OF_DOCUMENTS);
+		sender.join();
+	}
+
+	/**
+	 * parses byte ranges of the file in parallel, each range thread sends its documents to the sender stage
+	 */
+	private void runRanges(String filePath) throws Exception
+	{
+		Thread sender = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				sendDocuments();
+			}
+		}, "dblp-sender");
+
+		sender.start();
+
+		try
+		{
+			List<Long> counts = new DblpSplitParser().parse(filePath, numberOfRanges, new DblpSplitParser.RangeHandlerFactory<Long>()
+			{
+				public DblpSplitParser.RangeHandler<Long> create(int range)
+				{
+					final int stream = range;
+
+					return new DblpSplitParser.RangeHandler<Long>()
+					{
+						private long numberOfRecords = 0;
+
+						public long getRecordsToSkip()
+						{
+							return solrHandler.getResumeOrdinal(stream);
+						}
+
+						public void handle(DblpRecord record) throws Exception
+						{
+							if (solrHandler.hasIndexingFailed())
+							{
+								throw new Exception("DBLP range " + stream + " stopped, indexing failed");
+							}
+
+							numberOfRecords++;
+
+							documents.put(buildDocument(stream, record));
+						}
+
+						public Long finish()
+						{
+							return numberOfRecords;
+						}
+					};
+				}
+			});
+
+			for (int i = 0; i < counts.size(); i++)
+			{
+				MatchingHelper.logMessage(null, "DBLP range " + i + ": " + counts.get(i) + " records");
+			}
+		}
+		finally
+		{
+			documents.put(END_OF_DOCUMENTS);
+			sender.join();
+		}
+	}
+
+	/**
+	 * reader stage: fills free records with the next DBLP entries
+	 */
+	private void readRecords(String filePath)
+	{
+		DblpRecordSource recordReader = null;
+
+		try
+		{
+			recordReader = SolrHandler.openRecordSource(filePath);
+			recordReader.skip(solrHandler.getResumeOrdinal(0));
+
+			DblpRecord record = freeRecords.take();
+
+			while (!solrHandler.hasIndexingFailed() && recordReader.next(record))
+			{
+				records.put(record);
+				record = freeRecords.take();
+			}
+		}
+		catch (Exception ex)
+		{
+			solrHandler.indexingFailed(ex, "ERROR while parsing DBLP file");
+		}
+		finally
+		{
+			try
+			{
+				if (recordReader != null)
+				{
+					recordReader.close();
+				}
+
+				for (int i = 0; i < numberOfWorkers; i++)
+				{
+					records.put(END_OF_RECORDS);
+				}
+			}
+			catch (Exception ex)
+			{
+				MatchingHelper.logMessage(ex, "ERROR while closing DBLP file");
+			}
+		}
+	}
+
+	/**
+	 * worker stage: creates Solr documents and hands the records back to the reader
+	 */
+	private void buildDocuments()
+	{
+		try
+		{
+			DblpRecord record;
+
+			while ((record = records.take()) != END_OF_RECORDS)
+			{
+				IndexedRecord indexedRecord = buildDocument(0, record);
+
+				freeRecords.put(record);
+				documents.put(indexedRecord);
+			}
+		}
+		catch (Exception ex)
+		{
+			solrHandler.indexingFailed(ex, "ERROR while creating Solr documents from DBLP entries");
+		}
+	}
+
+	/**
+	 * creates the Solr document for the record, the document is null if the record is not sent to Solr
+	 */
+	private IndexedRecord buildDocument(int stream, DblpRecord record)
+	{
+		return new IndexedRecord(solrHandler.createDocument(record), stream, record.getOrdinal());
+	}
+
+	/**
+	 * sender stage: indexes documents in batches of DOCS_LIST_SIZE
+	 * <br> records are reported as added only once the batch containing them has been sent;
+	 * after a failed batch, documents are dropped until the other stages have stopped
+	 */
+	private void sendDocuments()
+	{
+		Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
+		List<IndexedRecord> batchRecords = new ArrayList<IndexedRecord>();
+
+		long numberOfDocs = 0;
+
+		try
+		{
+			IndexedRecord indexedRecord;
+
+			while ((indexedRecord = documents.take()) != END_OF_DOCUMENTS)
+			{
+				if (solrHandler.hasIndexingFailed())
+				{
+					continue;
+				}
+
+				batchRecords.add(indexedRecord);
+
+				if (indexedRecord.doc != null)
+				{
+					docs.add(indexedRecord.doc);
+				}
+
+				if (docs.size() == SolrHandler.DOCS_LIST_SIZE)
+				{
+					sendBatch(docs, batchRecords);
+					numberOfDocs += docs.size();
+					docs.clear();
+
+					System.out.println("currentNumberOfDocs : " + numberOfDocs);
+				}
+			}
+
+			if (!solrHandler.hasIndexingFailed())
+			{
+				sendBatch(docs, batchRecords);
+				numberOfDocs += docs.size();
+
+				System.out.println("currentNumberOfDocs : " + numberOfDocs);
+			}
+		}
+		catch (Exception ex)
+		{
+			solrHandler.indexingFailed(ex, "ERROR while sending DBLP documents to Solr");
+		}
+	}
+
+	/**
+	 * indexes a batch and reports its records as added, the run is stopped if the batch cannot be indexed
+	 */
+	private void sendBatch(Collection<SolrInputDocument> docs, List<IndexedRecord> batchRecords)
+	{
+		try
+		{
+			if (docs.size() > 0)
+			{
+				solrHandler.indexDocuments(docs);
+			}
+
+			for (IndexedRecord indexedRecord : batchRecords)
+			{
+				solrHandler.recordAdded(indexedRecord.stream, indexedRecord.ordinal);
+			}
+
+			batchRecords.clear();
+
+			solrHandler.batchAdded(docs.size());
+		}
+		catch (Exception ex)
+		{
+			solrHandler.indexingFailed(ex, "ERROR while indexing DBLP files");
+		}
+	}
+
+	/**
+	 * a Solr document (null if the record is not indexed) and the position of its record in the input
+	 */
+	private static class IndexedRecord
+	{
+		final SolrInputDocument doc;
+		final int stream;
+		final long ordinal;
+
+		IndexedRecord(SolrInputDocument doc, int stream, long ordinal)
+		{
+			this.doc = doc;
+			this.stream = stream;
+			this.ordinal = ordinal;
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * opens the DBLP dump, plain or gzip-compressed
+ * <br> compressed files are decompressed on a separate thread that hands large buffers to the parser
+ */
+public class DblpInput
+{
+	private static final String GZIP_EXTENSION 	= ".gz";
+	private static final String BZIP2_EXTENSION = ".bz2";
+	private static final String XZ_EXTENSION 	= ".xz";
+
+	private static final int FILE_BUFFER_SIZE = 1 << 20;
+	private static final int CHUNK_SIZE = 1 << 20;
+	private static final int QUEUED_CHUNKS = 16;
+
+	/**
+	 * returns true if the file is read through a decompressor (and so cannot be memory-mapped)
+	 */
+	public static boolean isCompressed(String filePath)
+	{
+		String lowerCasePath = filePath.toLowerCase();
+
+		return lowerCasePath.endsWith(GZIP_EXTENSION) || lowerCasePath.endsWith(BZIP2_EXTENSION) || lowerCasePath.endsWith(XZ_EXTENSION);
+	}
+
+	public static InputStream open(String filePath) throws IOException
+	{
+		String lowerCasePath = filePath.toLowerCase();
+
+		if (lowerCasePath.endsWith(BZIP2_EXTENSION) || lowerCasePath.endsWith(XZ_EXTENSION))
+		{
+			throw new IOException("Unsupported compression for DBLP file '" + filePath + "', use a plain or .gz file");
+		}
+
+		InputStream in = new BufferedInputStream(new FileInputStream(filePath), FILE_BUFFER_SIZE);
+
+		if (lowerCasePath.endsWith(GZIP_EXTENSION))
+		{
+			return new AsyncInputStream(new GZIPInputStream(in, FILE_BUFFER_SIZE));
+		}
+
+		return in;
+	}
+
+	/**
+	 * reads the source stream ahead on its own thread, through a bounded queue of chunks
+	 */
+	private static class AsyncInputStream extends InputStream
+	{
+		// end-of-stream marker, compared by reference
+		private static final byte[] END_OF_STREAM = new byte[0];
+
+		private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<byte[]>(QUEUED_CHUNKS);
+		private final Thread readerThread;
+
+		private volatile IOException exception;
+		private volatile boolean closed = false;
+
+		private byte[] chunk = new byte[0];
+		private int position = 0;
+		private boolean finished = false;
+
+		AsyncInputStream(final InputStream source)
+		{
+			readerThread = new Thread(new Runnable()
+			{
+				public void run()
+				{
+					try
+					{
+						while (!closed)
+						{
+							byte[] buffer = new byte[CHUNK_SIZE];
+							int length = 0;
+							int read = 0;
+
+							while (length < CHUNK_SIZE && (read = source.read(buffer, length, CHUNK_SIZE - length)) != -1)
+							{
+								length += read;
+							}
+
+							if (length > 0)
+							{
+								chunks.put(length == CHUNK_SIZE ? buffer : Arrays.copyOf(buffer, length));
+							}
+
+							if (read == -1)
+							{
+								break;
+							}
+						}
+					}
+					catch (IOException ex)
+					{
+						exception = ex;
+					}
+					catch (InterruptedException ex)
+					{
+						// closed by the consumer
+					}
+					finally
+					{
+						try
+						{
+							source.close();
+						}
+						catch (IOException ex)
+						{
+							MatchingHelper.logMessage(ex, "ERROR while closing DBLP file");
+						}
+					}
+
+					try
+					{
+						if (!closed)
+						{
+							chunks.put(END_OF_STREAM);
+						}
+					}
+					catch (InterruptedException ex)
+					{
+						// closed by the consumer
+					}
+				}
+			}, "dblp-decompressor");
+
+			readerThread.setDaemon(true);
+			readerThread.start();
+		}
+
+		/**
+		 * makes the next chunk current, returns false at the end of the stream
+		 */
+		private boolean nextChunk() throws IOException
+		{
+			while (position == chunk.length)
+			{
+				if (finished)
+				{
+					return false;
+				}
+
+				try
+				{
+					chunk = chunks.take();
+					position = 0;
+				}
+				catch (InterruptedException ex)
+				{
+					throw new IOException("Interrupted while reading DBLP file");
+				}
+
+				if (chunk == END_OF_STREAM)
+				{
+					finished = true;
+
+					if (exception != null)
+					{
+						throw exception;
+					}
+
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			return nextChunk() ? chunk[position++] & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException
+		{
+			if (length == 0)
+			{
+				return 0;
+			}
+
+			if (!nextChunk())
+			{
+				return -1;
+			}
+
+			length = Math.min(length, chunk.length - position);
+			System.arraycopy(chunk, position, bytes, offset, length);
+			position += length;
+
+			return length;
+		}
+
+		@Override
+		public void close()
+		{
+			closed = true;
+			readerThread.interrupt();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * mutable holder for the indexed fields of one DBLP entry
+ * <br> instances are filled by {@link DblpRecordReader} and reused from one entry to the next
+ */
+public class DblpRecord
+{
+	long ordinal;
+
+	String type;
+	String key;
+	String mdate;
+	String year;
+	String venue;
+	String pages;
+
+	boolean hasTitle;
+	final StringBuilder title = new StringBuilder();
+
+	final List<String> authors = new ArrayList<String>();
+
+	// precomputed when read from a snapshot, derived from the title and pages otherwise
+	String normalizedTitle;
+	int numberOfPages = -1;
+
+	/**
+	 * resets all fields before the record is filled with the next entry
+	 */
+	void clear()
+	{
+		type = null;
+		key = null;
+		mdate = null;
+		year = null;
+		venue = null;
+		pages = null;
+
+		hasTitle = false;
+		title.setLength(0);
+
+		authors.clear();
+
+		normalizedTitle = null;
+		numberOfPages = -1;
+	}
+
+	/**
+	 * returns the position of the entry among all entries read from the same input, starting at 0
+	 */
+	public long getOrdinal()
+	{
+		return ordinal;
+	}
+
+	/**
+	 * returns the DBLP type of publication, i.e. the record element name
+	 */
+	public String getType()
+	{
+		return type;
+	}
+
+	public String getKey()
+	{
+		return key;
+	}
+
+	public String getMdate()
+	{
+		return mdate;
+	}
+
+	/**
+	 * returns the title, or null if the entry does not have one
+	 */
+	public String getTitle()
+	{
+		return hasTitle ? title.toString() : null;
+	}
+
+	/**
+	 * returns the title without punctuation and stopwords
+	 */
+	public String getNormalizedTitle()
+	{
+		return normalizedTitle != null ? normalizedTitle : MatchingHelper.removeStopWordsAndPunctuationFromTitle(getTitle());
+	}
+
+	public String getYear()
+	{
+		return year;
+	}
+
+	/**
+	 * returns the journal for articles and the booktitle for (in)proceedings and incollections
+	 */
+	public String getVenue()
+	{
+		return venue;
+	}
+
+	public String getPages()
+	{
+		return pages;
+	}
+
+	public int getNumberOfPages()
+	{
+		return numberOfPages >= 0 ? numberOfPages : MatchingHelper.getNumberOfPages(pages);
+	}
+
+	public List<String> getAuthors()
+	{
+		return authors;
+	}
+}
@@ -0,0 +1,282 @@
+package main;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import main.MatchingHelper.Element;
+
+/**
+ * streaming DBLP reader working directly on the StAX cursor
+ * <br> only the indexed fields (key, title, year, venue, pages, authors) are copied into the record,
+ * the content of all other elements is stepped over without being materialized
+ * <br> the reader expects entity references in text to be reported, not replaced, and resolves them through {@link DblpEntities}
+ * <br> entity references in attribute values (keys) are replaced by the parser, which must have read the declarations of {@link DblpEntities}
+ * <br> entries whose type is not read are fast-forwarded as soon as their start tag is seen and are not numbered
+ */
+public class DblpRecordReader implements DblpRecordSource
+{
+	private static final String KEY   		= "key";
+	private static final String MDATE 		= "mdate";
+	private static final String AUTHOR 		= "author";
+	private static final String TITLE 		= "title";
+	private static final String YEAR  		= "year";
+	private static final String PAGES 		= "pages";
+	private static final String JOURNAL 	= "journal";
+	private static final String BOOKTITLE 	= "booktitle";
+
+	private final XMLStreamReader reader;
+
+	// element names of the entries that are read
+	private final Set<String> recordTypes;
+
+	// number of entries read or skipped so far
+	private long ordinal = 0;
+
+	// reused for the text of author, year, venue and pages elements
+	private final StringBuilder text = new StringBuilder();
+
+	public DblpRecordReader(XMLStreamReader reader)
+	{
+		this(reader, MatchingHelper.elementsList);
+	}
+
+	public DblpRecordReader(XMLStreamReader reader, Collection<String> recordTypes)
+	{
+		this.reader = reader;
+		this.recordTypes = new HashSet<String>(recordTypes);
+	}
+
+	/**
+	 * moves the cursor to the start tag of the next DBLP entry of a read type
+	 * <br> returns the element name, or null when the end of the document is reached
+	 */
+	private String nextRecordElement() throws XMLStreamException
+	{
+		while (reader.hasNext())
+		{
+			if (reader.next() == XMLStreamConstants.START_ELEMENT)
+			{
+				String name = reader.getLocalName();
+
+				if (recordTypes.contains(name))
+				{
+					return name;
+				}
+
+				if (MatchingHelper.elementsList.contains(name))
+				{
+					// neither attributes nor fields of excluded entries are read
+					skipElement();
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * reads the next DBLP entry into the given record
+	 * <br> returns false when there are no more entries
+	 */
+	public boolean next(DblpRecord record) throws XMLStreamException
+	{
+		String type = nextRecordElement();
+
+		if (type == null)
+		{
+			return false;
+		}
+
+		record.clear();
+		record.ordinal = ordinal++;
+		record.type = type;
+		record.key = reader.getAttributeValue(null, KEY);
+		record.mdate = reader.getAttributeValue(null, MDATE);
+
+		int depth = 1;
+
+		while (depth > 0)
+		{
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				if (depth == 1 && readField(record, reader.getLocalName()))
+				{
+					continue;
+				}
+
+				depth++;
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				depth--;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * skips the next DBLP entry without reading any of its fields
+	 * <br> returns false when there are no more entries
+	 */
+	public boolean skip() throws XMLStreamException
+	{
+		if (nextRecordElement() == null)
+		{
+			return false;
+		}
+
+		skipElement();
+		ordinal++;
+
+		return true;
+	}
+
+	/**
+	 * skips the given number of entries, used to resume an interrupted run
+	 */
+	public void skip(long numberOfRecords) throws XMLStreamException
+	{
+		for (long i = 0; i < numberOfRecords && skip(); i++)
+		{
+		}
+	}
+
+	/**
+	 * returns the number of entries read or skipped so far
+	 */
+	public long getOrdinal()
+	{
+		return ordinal;
+	}
+
+	/**
+	 * copies the content of the current field into the record if it is indexed
+	 * <br> returns false, leaving the cursor on the start tag, if the field is not indexed
+	 */
+	private boolean readField(DblpRecord record, String name) throws XMLStreamException
+	{
+		if (TITLE.equals(name))
+		{
+			record.hasTitle = true;
+			readText(record.title);
+		}
+		else if (AUTHOR.equals(name))
+		{
+			record.authors.add(readText());
+		}
+		else if (YEAR.equals(name))
+		{
+			record.year = readText();
+		}
+		else if (PAGES.equals(name))
+		{
+			record.pages = readText();
+		}
+		else if (JOURNAL.equals(name) && isJournalVenue(record.type))
+		{
+			record.venue = readText();
+		}
+		else if (BOOKTITLE.equals(name) && isBooktitleVenue(record.type))
+		{
+			record.venue = readText();
+		}
+		else
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * the venue of an article is its journal
+	 */
+	private static boolean isJournalVenue(String type)
+	{
+		return Element.ARTICLE.toString().equalsIgnoreCase(type);
+	}
+
+	/**
+	 * the venue of (in)proceedings and incollections is their booktitle
+	 */
+	private static boolean isBooktitleVenue(String type)
+	{
+		return Element.INPROCEEDINGS.toString().equalsIgnoreCase(type)
+				|| Element.PROCEEDINGS.toString().equalsIgnoreCase(type)
+				|| Element.INCOLLECTION.toString().equalsIgnoreCase(type);
+	}
+
+	private String readText() throws XMLStreamException
+	{
+		text.setLength(0);
+		readText(text);
+
+		return text.toString();
+	}
+
+	/**
+	 * appends all text inside the current element (including nested markup such as &lt;i&gt;) and moves past its end tag
+	 */
+	private void readText(StringBuilder builder) throws XMLStreamException
+	{
+		int depth = 1;
+
+		while (depth > 0)
+		{
+			switch (reader.next())
+			{
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					builder.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					break;
+				case XMLStreamConstants.ENTITY_REFERENCE:
+					DblpEntities.append(builder, reader.getLocalName());
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	/**
+	 * moves past the end tag of the current element without looking at its content
+	 */
+	private void skipElement() throws XMLStreamException
+	{
+		int depth = 1;
+
+		while (depth > 0)
+		{
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				depth++;
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				depth--;
+			}
+		}
+	}
+
+	public void close() throws XMLStreamException
+	{
+		reader.close();
+	}
+}
@@ -0,0 +1,25 @@
+package main;
+
+/**
+ * sequential source of DBLP entries, read from the XML file or from a compiled snapshot
+ */
+public interface DblpRecordSource
+{
+	/**
+	 * reads the next DBLP entry into the given record
+	 * <br> returns false when there are no more entries
+	 */
+	boolean next(DblpRecord record) throws Exception;
+
+	/**
+	 * skips the given number of entries, used to resume an interrupted run
+	 */
+	void skip(long numberOfRecords) throws Exception;
+
+	/**
+	 * returns the number of entries read or skipped so far
+	 */
+	long getOrdinal();
+
+	void close() throws Exception;
+}
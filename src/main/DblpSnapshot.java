@@ -0,0 +1,412 @@
+package main;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * compact binary snapshot of the parsed DBLP entries, compiled once from dblp.xml and memory-mapped when read
+ * <br> the layout is columnar: one section per field, variable-length fields are stored as an offset array
+ * into a data section; venues, authors, mdates and title tokens are stored once, in a shared string table
+ * <br> title tokens are lowercased, without punctuation and stopwords, as computed with the stopword list of the compile run;
+ * the snapshot is rejected if the stopword list or the element names have changed since
+ */
+public class DblpSnapshot
+{
+	// "DBLP"
+	static final int MAGIC = 0x44424C50;
+	static final int VERSION = 2;
+
+	// sections, in file order
+	static final int TYPES 			= 0;
+	static final int KEY_OFFSETS 	= 1;
+	static final int KEYS 			= 2;
+	static final int MDATES 		= 3;
+	static final int TITLE_OFFSETS 	= 4;
+	static final int TITLES 		= 5;
+	static final int TOKEN_OFFSETS 	= 6;
+	static final int TOKENS 		= 7;
+	static final int YEARS 			= 8;
+	static final int VENUES 		= 9;
+	static final int PAGE_COUNTS 	= 10;
+	static final int AUTHOR_OFFSETS = 11;
+	static final int AUTHORS 		= 12;
+	static final int STRING_OFFSETS = 13;
+	static final int STRINGS 		= 14;
+	static final int NUMBER_OF_SECTIONS = 15;
+
+	// magic, version, number of records, number of sections, signatures of the element names and of the stopwords,
+	// then offset and length of each section
+	static final int HEADER_SIZE = 32 + 16 * NUMBER_OF_SECTIONS;
+
+	// the type byte holds the index of the element name and a flag set for entries that have a title
+	static final int TYPE_MASK = 0x7F;
+	static final int HAS_TITLE = 0x80;
+
+	// id of a missing shared string, value of a missing year
+	static final int NONE = -1;
+
+	static final Charset UTF8 = Charset.forName("UTF8");
+
+	private final int numberOfRecords;
+
+	private final ByteBuffer[] sections = new ByteBuffer[NUMBER_OF_SECTIONS];
+	private final IntBuffer[] intSections = new IntBuffer[NUMBER_OF_SECTIONS];
+
+	/**
+	 * maps the snapshot file, the mappings stay valid after the file is closed
+	 */
+	public DblpSnapshot(String filePath) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(filePath, "r");
+
+		try
+		{
+			FileChannel channel = file.getChannel();
+
+			if (channel.size() < HEADER_SIZE)
+			{
+				throw new IOException("'" + filePath + "' is not a DBLP snapshot");
+			}
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+
+			if (header.getInt() != MAGIC || header.getInt() != VERSION)
+			{
+				throw new IOException("'" + filePath + "' is not a DBLP snapshot of version " + VERSION);
+			}
+
+			numberOfRecords = header.getInt();
+
+			if (header.getInt() != NUMBER_OF_SECTIONS)
+			{
+				throw new IOException("Unexpected number of sections in DBLP snapshot '" + filePath + "'");
+			}
+
+			// the type bytes index the element names, the title tokens were computed without the stopwords
+			if (header.getLong() != getElementsSignature() || header.getLong() != getStopWordsSignature())
+			{
+				throw new IOException("DBLP snapshot '" + filePath + "' was compiled with other element names or stopwords, compile it again");
+			}
+
+			for (int i = 0; i < NUMBER_OF_SECTIONS; i++)
+			{
+				long offset = header.getLong();
+				long length = header.getLong();
+
+				sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+				intSections[i] = sections[i].asIntBuffer();
+			}
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	/**
+	 * returns true if the file starts with the snapshot magic number
+	 */
+	public static boolean isSnapshot(String filePath)
+	{
+		try
+		{
+			DataInputStream in = new DataInputStream(new FileInputStream(filePath));
+
+			try
+			{
+				return in.readInt() == MAGIC;
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (IOException ex)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * parses the DBLP XML file once and writes all its entries to a snapshot
+	 */
+	public static void compile(String dblpPath, String snapshotPath) throws Exception
+	{
+		// the snapshot holds entries of all types, they are filtered when it is read
+		DblpRecordReader recordReader = SolrHandler.createRecordReader(DblpInput.open(dblpPath), MatchingHelper.elementsList);
+		DblpSnapshotWriter writer = new DblpSnapshotWriter(snapshotPath);
+
+		try
+		{
+			DblpRecord record = new DblpRecord();
+
+			while (recordReader.next(record))
+			{
+				writer.add(record);
+			}
+
+			writer.finish();
+		}
+		finally
+		{
+			writer.close();
+			recordReader.close();
+		}
+
+		MatchingHelper.logMessage(null, "Compiled " + recordReader.getOrdinal() + " DBLP entries into snapshot '" + snapshotPath + "'");
+	}
+
+	/**
+	 * returns the signature of the element names, in the order their indexes are stored in the type bytes
+	 */
+	static long getElementsSignature()
+	{
+		return getSignature(MatchingHelper.elementsList);
+	}
+
+	/**
+	 * returns the signature of the stopwords removed from the title tokens, whatever their order
+	 */
+	static long getStopWordsSignature()
+	{
+		return getSignature(new TreeSet<String>(MatchingHelper.getStopWords()));
+	}
+
+	/**
+	 * returns the 64-bit FNV-1a hash of the strings, each one followed by a line feed
+	 */
+	private static long getSignature(Collection<String> strings)
+	{
+		StringBuilder builder = new StringBuilder();
+
+		for (String string : strings)
+		{
+			builder.append(string).append('\n');
+		}
+
+		return MatchingHelper.getTitleFingerprint(builder.toString());
+	}
+
+	/**
+	 * returns the number of entries in the snapshot
+	 */
+	public int size()
+	{
+		return numberOfRecords;
+	}
+
+	public String getType(int record)
+	{
+		return MatchingHelper.elementsList.get(sections[TYPES].get(record) & TYPE_MASK);
+	}
+
+	public String getKey(int record)
+	{
+		return getString(KEYS, KEY_OFFSETS, record);
+	}
+
+	public String getMdate(int record)
+	{
+		return getSharedString(intSections[MDATES].get(record));
+	}
+
+	/**
+	 * returns the title, or null if the entry does not have one
+	 */
+	public String getTitle(int record)
+	{
+		return (sections[TYPES].get(record) & HAS_TITLE) != 0 ? getString(TITLES, TITLE_OFFSETS, record) : null;
+	}
+
+	/**
+	 * returns the title tokens, lowercased and without punctuation and stopwords
+	 */
+	public List<String> getTitleTokens(int record)
+	{
+		return getSharedStrings(TOKENS, TOKEN_OFFSETS, record);
+	}
+
+	/**
+	 * returns the year, or -1 if the entry does not have one
+	 */
+	public int getYear(int record)
+	{
+		return intSections[YEARS].get(record);
+	}
+
+	public String getVenue(int record)
+	{
+		return getSharedString(intSections[VENUES].get(record));
+	}
+
+	public int getNumberOfPages(int record)
+	{
+		return intSections[PAGE_COUNTS].get(record);
+	}
+
+	public List<String> getAuthors(int record)
+	{
+		return getSharedStrings(AUTHORS, AUTHOR_OFFSETS, record);
+	}
+
+	/**
+	 * fills the record with the given entry, including the precomputed normalized title and page count
+	 */
+	public void read(int index, DblpRecord record)
+	{
+		record.clear();
+		record.ordinal = index;
+		record.type = getType(index);
+		record.key = getKey(index);
+		record.mdate = getMdate(index);
+		record.venue = getVenue(index);
+		record.numberOfPages = getNumberOfPages(index);
+
+		int year = getYear(index);
+
+		if (year != NONE)
+		{
+			record.year = String.valueOf(year);
+		}
+
+		String title = getTitle(index);
+
+		if (title != null)
+		{
+			record.hasTitle = true;
+			record.title.append(title);
+
+			StringBuilder normalizedTitle = new StringBuilder();
+
+			for (String token : getTitleTokens(index))
+			{
+				if (normalizedTitle.length() > 0)
+				{
+					normalizedTitle.append(' ');
+				}
+
+				normalizedTitle.append(token);
+			}
+
+			record.normalizedTitle = normalizedTitle.toString();
+		}
+
+		record.authors.addAll(getAuthors(index));
+	}
+
+	/**
+	 * returns a source reading, in order, the entries of the given types
+	 * <br> as with the XML reader, entries of other types are not numbered
+	 */
+	public DblpRecordSource records(Collection<String> recordTypes)
+	{
+		final boolean[] isRead = new boolean[MatchingHelper.elementsList.size()];
+
+		for (int i = 0; i < isRead.length; i++)
+		{
+			isRead[i] = recordTypes.contains(MatchingHelper.elementsList.get(i));
+		}
+
+		return new DblpRecordSource()
+		{
+			// position in the snapshot and number of entries read or skipped so far
+			private int index = 0;
+			private long ordinal = 0;
+
+			/**
+			 * moves to the next entry of a read type, returns false at the end of the snapshot
+			 */
+			private boolean seek()
+			{
+				while (index < numberOfRecords && !isRead[sections[TYPES].get(index) & TYPE_MASK])
+				{
+					index++;
+				}
+
+				return index < numberOfRecords;
+			}
+
+			public boolean next(DblpRecord record)
+			{
+				if (!seek())
+				{
+					return false;
+				}
+
+				read(index++, record);
+				record.ordinal = ordinal++;
+
+				return true;
+			}
+
+			public void skip(long numberOfRecords)
+			{
+				for (long i = 0; i < numberOfRecords && seek(); i++)
+				{
+					index++;
+					ordinal++;
+				}
+			}
+
+			public long getOrdinal()
+			{
+				return ordinal;
+			}
+
+			public void close()
+			{
+			}
+		};
+	}
+
+	/**
+	 * decodes the i-th string of a data section
+	 */
+	private String getString(int section, int offsetsSection, int index)
+	{
+		int start = intSections[offsetsSection].get(index);
+		int end = intSections[offsetsSection].get(index + 1);
+
+		byte[] bytes = new byte[end - start];
+
+		// the shared mapping is never repositioned, reads go through a duplicate
+		ByteBuffer data = sections[section].duplicate();
+		data.position(start);
+		data.get(bytes);
+
+		return new String(bytes, UTF8);
+	}
+
+	private String getSharedString(int id)
+	{
+		return id != NONE ? getString(STRINGS, STRING_OFFSETS, id) : null;
+	}
+
+	/**
+	 * returns the shared strings referenced by the i-th run of ids of a section
+	 */
+	private List<String> getSharedStrings(int section, int offsetsSection, int index)
+	{
+		int start = intSections[offsetsSection].get(index);
+		int end = intSections[offsetsSection].get(index + 1);
+
+		List<String> strings = new ArrayList<String>(end - start);
+
+		for (int i = start; i < end; i++)
+		{
+			strings.add(getSharedString(intSections[section].get(i)));
+		}
+
+		return strings;
+	}
+}
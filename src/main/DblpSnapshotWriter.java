@@ -0,0 +1,264 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * writes a {@link DblpSnapshot}: each section is streamed to its own temporary file,
+ * the sections are concatenated behind the header once all entries have been added
+ */
+class DblpSnapshotWriter
+{
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// sections are padded so that each of them starts on an 8-byte boundary
+	private static final int SECTION_ALIGNMENT = 8;
+
+	private final String snapshotPath;
+
+	private final File[] sectionFiles = new File[DblpSnapshot.NUMBER_OF_SECTIONS];
+	private final DataOutputStream[] sections = new DataOutputStream[DblpSnapshot.NUMBER_OF_SECTIONS];
+
+	// ids of the shared strings, in order of first occurrence
+	private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+
+	private int numberOfRecords = 0;
+	private int numberOfTokens = 0;
+	private int numberOfAuthors = 0;
+
+	DblpSnapshotWriter(String snapshotPath) throws IOException
+	{
+		this.snapshotPath = snapshotPath;
+
+		File folder = new File(snapshotPath).getAbsoluteFile().getParentFile();
+
+		for (int i = 0; i < DblpSnapshot.NUMBER_OF_SECTIONS; i++)
+		{
+			sectionFiles[i] = File.createTempFile("dblp-snapshot-" + i + "-", ".tmp", folder);
+			sections[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sectionFiles[i]), BUFFER_SIZE));
+		}
+
+		// offset arrays start with the offset of their first element
+		sections[DblpSnapshot.KEY_OFFSETS].writeInt(0);
+		sections[DblpSnapshot.TITLE_OFFSETS].writeInt(0);
+		sections[DblpSnapshot.TOKEN_OFFSETS].writeInt(0);
+		sections[DblpSnapshot.AUTHOR_OFFSETS].writeInt(0);
+		sections[DblpSnapshot.STRING_OFFSETS].writeInt(0);
+	}
+
+	void add(DblpRecord record) throws IOException
+	{
+		String title = record.getTitle();
+
+		int type = MatchingHelper.elementsList.indexOf(record.getType());
+
+		if (type < 0)
+		{
+			throw new IOException("Unknown type '" + record.getType() + "' of DBLP entry '" + record.getKey() + "'");
+		}
+
+		sections[DblpSnapshot.TYPES].writeByte(title != null ? type | DblpSnapshot.HAS_TITLE : type);
+
+		writeString(DblpSnapshot.KEYS, DblpSnapshot.KEY_OFFSETS, record.getKey());
+		sections[DblpSnapshot.MDATES].writeInt(getStringId(record.getMdate()));
+
+		writeString(DblpSnapshot.TITLES, DblpSnapshot.TITLE_OFFSETS, title);
+
+		if (title != null)
+		{
+			for (String token : record.getNormalizedTitle().split(" "))
+			{
+				if (!"".equals(token))
+				{
+					sections[DblpSnapshot.TOKENS].writeInt(getStringId(token));
+					numberOfTokens = increment(numberOfTokens);
+				}
+			}
+		}
+
+		sections[DblpSnapshot.TOKEN_OFFSETS].writeInt(numberOfTokens);
+
+		sections[DblpSnapshot.YEARS].writeInt(parseYear(record.getYear()));
+		sections[DblpSnapshot.VENUES].writeInt(getStringId(record.getVenue()));
+		sections[DblpSnapshot.PAGE_COUNTS].writeInt(record.getNumberOfPages());
+
+		for (String author : record.getAuthors())
+		{
+			sections[DblpSnapshot.AUTHORS].writeInt(getStringId(author));
+			numberOfAuthors = increment(numberOfAuthors);
+		}
+
+		sections[DblpSnapshot.AUTHOR_OFFSETS].writeInt(numberOfAuthors);
+
+		numberOfRecords = increment(numberOfRecords);
+	}
+
+	/**
+	 * writes the header and the sections into the snapshot file, replacing any previous snapshot
+	 */
+	void finish() throws IOException
+	{
+		long[] lengths = new long[DblpSnapshot.NUMBER_OF_SECTIONS];
+
+		for (int i = 0; i < DblpSnapshot.NUMBER_OF_SECTIONS; i++)
+		{
+			lengths[i] = sections[i].size();
+
+			while (sections[i].size() % SECTION_ALIGNMENT != 0)
+			{
+				sections[i].writeByte(0);
+			}
+
+			sections[i].close();
+		}
+
+		File file = new File(snapshotPath);
+		File tempFile = new File(snapshotPath + ".tmp");
+
+		FileOutputStream out = new FileOutputStream(tempFile);
+
+		try
+		{
+			DataOutputStream header = new DataOutputStream(new BufferedOutputStream(out));
+
+			header.writeInt(DblpSnapshot.MAGIC);
+			header.writeInt(DblpSnapshot.VERSION);
+			header.writeInt(numberOfRecords);
+			header.writeInt(DblpSnapshot.NUMBER_OF_SECTIONS);
+			header.writeLong(DblpSnapshot.getElementsSignature());
+			header.writeLong(DblpSnapshot.getStopWordsSignature());
+
+			long offset = DblpSnapshot.HEADER_SIZE;
+
+			for (int i = 0; i < DblpSnapshot.NUMBER_OF_SECTIONS; i++)
+			{
+				header.writeLong(offset);
+				header.writeLong(lengths[i]);
+
+				offset += sectionFiles[i].length();
+			}
+
+			header.flush();
+
+			FileChannel channel = out.getChannel();
+
+			for (int i = 0; i < DblpSnapshot.NUMBER_OF_SECTIONS; i++)
+			{
+				FileInputStream in = new FileInputStream(sectionFiles[i]);
+
+				try
+				{
+					FileChannel sectionChannel = in.getChannel();
+
+					for (long position = 0; position < sectionChannel.size(); )
+					{
+						position += sectionChannel.transferTo(position, sectionChannel.size() - position, channel);
+					}
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * closes and deletes the temporary section files
+	 */
+	void close()
+	{
+		for (int i = 0; i < DblpSnapshot.NUMBER_OF_SECTIONS; i++)
+		{
+			try
+			{
+				sections[i].close();
+			}
+			catch (IOException ex)
+			{
+				MatchingHelper.logMessage(ex, "ERROR while closing DBLP snapshot section");
+			}
+
+			sectionFiles[i].delete();
+		}
+	}
+
+	/**
+	 * appends a string to a data section and its end offset to the offset array, null is written as an empty string
+	 */
+	private void writeString(int section, int offsetsSection, String value) throws IOException
+	{
+		if (value != null)
+		{
+			sections[section].write(value.getBytes(DblpSnapshot.UTF8));
+		}
+
+		// DataOutputStream.size() stops at Integer.MAX_VALUE
+		if (sections[section].size() == Integer.MAX_VALUE)
+		{
+			throw new IOException("DBLP snapshot section " + section + " exceeds 2GB");
+		}
+
+		sections[offsetsSection].writeInt(sections[section].size());
+	}
+
+	/**
+	 * returns the id of the string in the shared string table, adding it if needed
+	 */
+	private int getStringId(String value) throws IOException
+	{
+		if (value == null)
+		{
+			return DblpSnapshot.NONE;
+		}
+
+		Integer id = stringIds.get(value);
+
+		if (id == null)
+		{
+			id = stringIds.size();
+			stringIds.put(value, id);
+
+			writeString(DblpSnapshot.STRINGS, DblpSnapshot.STRING_OFFSETS, value);
+		}
+
+		return id;
+	}
+
+	private static int parseYear(String year)
+	{
+		try
+		{
+			return year != null ? Integer.parseInt(year.trim()) : DblpSnapshot.NONE;
+		}
+		catch (NumberFormatException ex)
+		{
+			return DblpSnapshot.NONE;
+		}
+	}
+
+	private static int increment(int count) throws IOException
+	{
+		if (count == Integer.MAX_VALUE)
+		{
+			throw new IOException("Too many values for a DBLP snapshot");
+		}
+
+		return count + 1;
+	}
+}
@@ -0,0 +1,328 @@
+package main;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * parses dblp.xml in parallel over a memory-mapped file
+ * <br> the file is cut into byte ranges, each range is moved forward to the next record start tag
+ * and parsed on its own thread as a standalone document (original prolog + range + closing root tag);
+ * per-range results are returned in file order, so the merge does not depend on thread scheduling
+ */
+public class DblpSplitParser
+{
+	private static final String DBLP_END_TAG = "</dblp>";
+
+	// a single mapping cannot exceed 2GB
+	private static final long MAX_RANGE_SIZE = Integer.MAX_VALUE;
+
+	// window mapped while looking for the next record start tag
+	private static final int SCAN_WINDOW_SIZE = 1 << 20;
+
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	/**
+	 * receives the records of one range, in file order
+	 */
+	public interface RangeHandler<T>
+	{
+		/**
+		 * number of leading records of the range that are skipped without being handled
+		 */
+		long getRecordsToSkip();
+
+		void handle(DblpRecord record) throws Exception;
+
+		T finish() throws Exception;
+	}
+
+	public interface RangeHandlerFactory<T>
+	{
+		RangeHandler<T> create(int range);
+	}
+
+	private final byte[][] recordStartTags;
+
+	public DblpSplitParser()
+	{
+		recordStartTags = new byte[MatchingHelper.elementsList.size()][];
+
+		for (int i = 0; i < recordStartTags.length; i++)
+		{
+			recordStartTags[i] = ("<" + MatchingHelper.elementsList.get(i)).getBytes(ASCII);
+		}
+	}
+
+	/**
+	 * parses the file in (at most) the given number of ranges and returns the handler results in range order
+	 */
+	public <T> List<T> parse(String filePath, int numberOfRanges, final RangeHandlerFactory<T> factory) throws Exception
+	{
+		RandomAccessFile file = new RandomAccessFile(filePath, "r");
+		final FileChannel channel = file.getChannel();
+
+		try
+		{
+			long size = channel.size();
+
+			long start = findRecordStart(channel, 0, size);
+			long end = findDblpEnd(channel, size);
+
+			if (start < 0 || end < start)
+			{
+				return new ArrayList<T>();
+			}
+
+			numberOfRanges = (int)Math.max(numberOfRanges, (end - start) / MAX_RANGE_SIZE + 1);
+
+			final byte[] prolog = readBytes(channel, 0, (int)start);
+			final List<Long> boundaries = computeBoundaries(channel, start, end, numberOfRanges);
+
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(boundaries.size() - 1, Runtime.getRuntime().availableProcessors()));
+
+			List<Future<T>> futures = new ArrayList<Future<T>>();
+
+			for (int i = 0; i < boundaries.size() - 1; i++)
+			{
+				final int range = i;
+
+				futures.add(executor.submit(new Callable<T>()
+				{
+					public T call() throws Exception
+					{
+						return parseRange(channel, prolog, boundaries.get(range), boundaries.get(range + 1), factory.create(range));
+					}
+				}));
+			}
+
+			executor.shutdown();
+
+			List<T> results = new ArrayList<T>();
+			ExecutionException error = null;
+
+			// all ranges are waited for, so that none is left running when one of them fails
+			for (Future<T> future : futures)
+			{
+				try
+				{
+					results.add(future.get());
+				}
+				catch (ExecutionException ex)
+				{
+					if (error == null)
+					{
+						error = ex;
+					}
+				}
+			}
+
+			if (error != null)
+			{
+				throw error;
+			}
+
+			return results;
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	/**
+	 * computes range boundaries, each of them (but the last) on a record start tag
+	 */
+	private List<Long> computeBoundaries(FileChannel channel, long start, long end, int numberOfRanges) throws IOException
+	{
+		List<Long> boundaries = new ArrayList<Long>();
+
+		boundaries.add(start);
+
+		for (int i = 1; i < numberOfRanges; i++)
+		{
+			long offset = start + (end - start) * i / numberOfRanges;
+			long boundary = findRecordStart(channel, Math.max(offset, boundaries.get(boundaries.size() - 1) + 1), end);
+
+			if (boundary < 0)
+			{
+				break;
+			}
+
+			if (boundary - boundaries.get(boundaries.size() - 1) > MAX_RANGE_SIZE)
+			{
+				throw new IOException("DBLP range starting at byte " + boundaries.get(boundaries.size() - 1) + " exceeds 2GB");
+			}
+
+			boundaries.add(boundary);
+		}
+
+		boundaries.add(end);
+
+		return boundaries;
+	}
+
+	private <T> T parseRange(FileChannel channel, byte[] prolog, long from, long to, RangeHandler<T> handler) throws Exception
+	{
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+
+		InputStream in = new SequenceInputStream(new ByteArrayInputStream(prolog),
+				new SequenceInputStream(new ByteBufferInputStream(buffer), new ByteArrayInputStream(DBLP_END_TAG.getBytes(ASCII))));
+
+		DblpRecordReader recordReader = SolrHandler.createRecordReader(in);
+		DblpRecord record = new DblpRecord();
+
+		try
+		{
+			recordReader.skip(handler.getRecordsToSkip());
+
+			while (recordReader.next(record))
+			{
+				handler.handle(record);
+			}
+		}
+		finally
+		{
+			recordReader.close();
+		}
+
+		return handler.finish();
+	}
+
+	/**
+	 * returns the offset of the first record start tag in [from, to), or -1 if there is none
+	 */
+	private long findRecordStart(FileChannel channel, long from, long to) throws IOException
+	{
+		while (from < to)
+		{
+			// windows overlap so that tags crossing a window border are not missed
+			int length = (int)Math.min(SCAN_WINDOW_SIZE, to - from);
+			ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+
+			for (int i = 0; i < length; i++)
+			{
+				if (window.get(i) == '<' && isRecordStartTag(window, i, length))
+				{
+					return from + i;
+				}
+			}
+
+			if (from + length >= to)
+			{
+				break;
+			}
+
+			from += length - 64;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * checks whether one of the record start tags, followed by whitespace or '>', begins at the given position
+	 */
+	private boolean isRecordStartTag(ByteBuffer window, int position, int length)
+	{
+		for (byte[] tag : recordStartTags)
+		{
+			if (position + tag.length >= length)
+			{
+				continue;
+			}
+
+			boolean matches = true;
+
+			for (int j = 1; j < tag.length && matches; j++)
+			{
+				matches = window.get(position + j) == tag[j];
+			}
+
+			if (matches)
+			{
+				byte next = window.get(position + tag.length);
+
+				if (next == ' ' || next == '>' || next == '\t' || next == '\r' || next == '\n')
+				{
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * returns the offset of the closing root tag
+	 */
+	private long findDblpEnd(FileChannel channel, long size) throws IOException
+	{
+		int length = (int)Math.min(SCAN_WINDOW_SIZE, size);
+		byte[] tail = readBytes(channel, size - length, length);
+
+		int index = new String(tail, ASCII).lastIndexOf(DBLP_END_TAG);
+
+		return index < 0 ? size : size - length + index;
+	}
+
+	private byte[] readBytes(FileChannel channel, long position, int length) throws IOException
+	{
+		byte[] bytes = new byte[length];
+
+		channel.map(FileChannel.MapMode.READ_ONLY, position, length).get(bytes);
+
+		return bytes;
+	}
+
+	/**
+	 * input stream reading from a (memory-mapped) byte buffer
+	 */
+	private static class ByteBufferInputStream extends InputStream
+	{
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read()
+		{
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length)
+		{
+			if (!buffer.hasRemaining())
+			{
+				return -1;
+			}
+
+			length = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, length);
+
+			return length;
+		}
+
+		@Override
+		public int available()
+		{
+			return buffer.remaining();
+		}
+	}
+}
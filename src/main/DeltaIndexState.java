@@ -0,0 +1,162 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * state of a delta indexing run: the keys indexed by the previous run and the highest mdate seen by it
+ * <br> a record is sent to Solr only if its key is new or its mdate is not older than that mdate;
+ * keys of the previous run that are missing from the current dump are deleted from the index
+ */
+public class DeltaIndexState
+{
+	private static final String MAX_MDATE = "MAX_MDATE";
+
+	private final String statePath;
+
+	// mdate values are ISO dates (yyyy-mm-dd), so they compare as strings
+	private String previousMaxMdate = "";
+	private String maxMdate = "";
+
+	private Set<String> previousKeys = new HashSet<String>();
+	private Set<String> currentKeys = new HashSet<String>();
+
+	private long numberOfNewOrChangedRecords = 0;
+	private long numberOfUnchangedRecords = 0;
+
+	public DeltaIndexState(String statePath)
+	{
+		this.statePath = statePath;
+	}
+
+	/**
+	 * loads the state of the previous run, if there is one
+	 */
+	public void load()
+	{
+		File file = new File(statePath);
+
+		if (!file.exists())
+		{
+			MatchingHelper.logMessage(null, "No delta index state found in '" + statePath + "', all records are indexed");
+			return;
+		}
+
+		try
+		{
+			BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charset.forName("UTF8")));
+
+			String line = in.readLine();
+
+			if (line != null && line.startsWith(MAX_MDATE + "\t"))
+			{
+				previousMaxMdate = line.substring(MAX_MDATE.length() + 1);
+				maxMdate = previousMaxMdate;
+			}
+
+			while ((line = in.readLine()) != null)
+			{
+				previousKeys.add(line);
+			}
+
+			in.close();
+
+			MatchingHelper.logMessage(null, "Delta indexing against " + previousKeys.size() + " previously indexed records (last mdate " + previousMaxMdate + ")");
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while reading delta index state, all records are indexed");
+
+			previousMaxMdate = "";
+			previousKeys = new HashSet<String>();
+		}
+	}
+
+	/**
+	 * records the key of an indexable DBLP entry and returns true if the entry has to be sent to Solr
+	 */
+	public synchronized boolean isNewOrChanged(DblpRecord record)
+	{
+		String key = record.getKey();
+		String mdate = record.getMdate() != null ? record.getMdate() : "";
+
+		currentKeys.add(key);
+
+		boolean isNew = !previousKeys.remove(key);
+
+		if (mdate.compareTo(maxMdate) > 0)
+		{
+			maxMdate = mdate;
+		}
+
+		// entries modified on the last day of the previous dump may have been changed after it was taken
+		if (isNew || mdate.compareTo(previousMaxMdate) >= 0)
+		{
+			numberOfNewOrChangedRecords++;
+			return true;
+		}
+
+		numberOfUnchangedRecords++;
+		return false;
+	}
+
+	/**
+	 * returns the keys of the previous run that were not found in the current dump
+	 */
+	public synchronized List<String> getDisappearedKeys()
+	{
+		return new ArrayList<String>(previousKeys);
+	}
+
+	/**
+	 * keeps the keys that were not read in this run, used when the run did not read the whole dump
+	 */
+	public synchronized void keepUnseenKeys()
+	{
+		currentKeys.addAll(previousKeys);
+		previousKeys.clear();
+	}
+
+	/**
+	 * writes the state for the next run, must be called after the final commit
+	 */
+	public synchronized void save()
+	{
+		MatchingHelper.logMessage(null, "Delta indexing: " + numberOfNewOrChangedRecords + " new or changed records, " + numberOfUnchangedRecords + " unchanged records, " + previousKeys.size() + " removed records");
+
+		try
+		{
+			File file = new File(statePath);
+			File tempFile = new File(statePath + ".tmp");
+
+			PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(tempFile), Charset.forName("UTF8")));
+
+			out.println(MAX_MDATE + "\t" + maxMdate);
+
+			for (String key : currentKeys)
+			{
+				out.println(key);
+			}
+
+			out.close();
+
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while writing delta index state");
+		}
+	}
+}
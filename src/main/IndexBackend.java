@@ -0,0 +1,65 @@
+package main;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+
+/**
+ * index in which DBLP entries are stored and searched
+ * <br> documents, queries and results use the SolrJ classes and the fields of solr/conf/schema.xml, whatever the backend
+ */
+public interface IndexBackend
+{
+	/**
+	 * query parser parameter, the edismax parser requires mm of the clauses of q, searched in the qf field, to match
+	 */
+	String DEF_TYPE = "defType";
+	String EDISMAX = "edismax";
+
+	/**
+	 * pseudo-field of the relevance score, returned only if it is listed in fl
+	 */
+	String SCORE = "score";
+
+	/**
+	 * adds (or replaces, by id) the given documents
+	 */
+	void add(Collection<SolrInputDocument> docs) throws Exception;
+
+	/**
+	 * makes added documents visible to queries, without making them durable
+	 */
+	void softCommit() throws Exception;
+
+	/**
+	 * waits for pending updates and makes them durable and visible, fails if any of them could not be indexed
+	 */
+	void commit() throws Exception;
+
+	void optimize() throws Exception;
+
+	void deleteById(List<String> ids) throws Exception;
+
+	void deleteAll() throws Exception;
+
+	/**
+	 * returns the documents matching the query (q, fq, start, rows and fl are used, and qf and mm for edismax queries), numFound is set
+	 */
+	SolrDocumentList query(SolrQuery query) throws Exception;
+
+	/**
+	 * returns the version of the searched index, which changes whenever a commit changes the index
+	 */
+	long getVersion() throws Exception;
+
+	/**
+	 * returns the number of documents containing each term of the field, as indexed (after analysis)
+	 */
+	Map<String, Integer> getDocumentFrequencies(String field) throws Exception;
+
+	void close();
+}
@@ -0,0 +1,251 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * progress of a DBLP indexing run, persisted after each hard commit so that a failed run can be resumed
+ * <br> records are numbered per input stream (the whole file, or one byte range when parsing in parallel);
+ * for each stream the checkpoint holds the number of leading records that are known to be committed
+ */
+public class IndexingCheckpoint
+{
+	private static final String DBLP_PATH 			= "DBLP_PATH";
+	private static final String FILE_SIZE 			= "FILE_SIZE";
+	private static final String PARSE_RANGES 		= "PARSE_RANGES";
+	private static final String RECORD_TYPES 		= "RECORD_TYPES";
+	private static final String COMMITTED_BATCHES 	= "COMMITTED_BATCHES";
+	private static final String COMMITTED_DOCUMENTS = "COMMITTED_DOCUMENTS";
+	private static final String STREAM 				= "STREAM";
+
+	private final String checkpointPath;
+	private final String dblpPath;
+	private final long fileSize;
+	private final int parseRanges;
+	private final String recordTypes;
+
+	// number of records to fast-forward per stream when resuming
+	private final Map<Integer, Long> resumeOrdinals = new HashMap<Integer, Long>();
+
+	// per stream, the first record not yet added plus the records added out of order after it
+	private final Map<Integer, Long> nextOrdinals = new TreeMap<Integer, Long>();
+	private final Map<Integer, PriorityQueue<Long>> pendingOrdinals = new HashMap<Integer, PriorityQueue<Long>>();
+
+	private long committedBatches = 0;
+	private long committedDocuments = 0;
+	private long documentsSinceCommit = 0;
+
+	/**
+	 * the record types are part of the checkpoint, since records are numbered among the entries of the read types only
+	 */
+	public IndexingCheckpoint(String checkpointPath, String dblpPath, int parseRanges, String recordTypes)
+	{
+		this.checkpointPath = checkpointPath;
+		this.dblpPath = dblpPath;
+		this.fileSize = new File(dblpPath).length();
+		this.parseRanges = parseRanges;
+		this.recordTypes = recordTypes;
+	}
+
+	/**
+	 * loads the checkpoint of a previous run of the same file and configuration
+	 */
+	public void load()
+	{
+		File file = new File(checkpointPath);
+
+		if (!file.exists())
+		{
+			MatchingHelper.logMessage(null, "No checkpoint found in '" + checkpointPath + "', indexing from the beginning");
+			return;
+		}
+
+		try
+		{
+			BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charset.forName("UTF8")));
+
+			Map<String, String> values = new HashMap<String, String>();
+			Map<Integer, Long> ordinals = new HashMap<Integer, Long>();
+
+			String line;
+
+			while ((line = in.readLine()) != null)
+			{
+				String[] split = line.split("\t");
+
+				if (split.length == 3 && STREAM.equals(split[0]))
+				{
+					ordinals.put(Integer.parseInt(split[1]), Long.parseLong(split[2]));
+				}
+				else if (split.length == 2)
+				{
+					values.put(split[0], split[1]);
+				}
+			}
+
+			in.close();
+
+			if (!dblpPath.equals(values.get(DBLP_PATH)) || !String.valueOf(fileSize).equals(values.get(FILE_SIZE))
+					|| !String.valueOf(parseRanges).equals(values.get(PARSE_RANGES)) || !recordTypes.equals(values.get(RECORD_TYPES)))
+			{
+				MatchingHelper.logMessage(null, "Checkpoint '" + checkpointPath + "' was written for a different DBLP file, PARSE_RANGES value or record types, indexing from the beginning");
+				return;
+			}
+
+			committedBatches = Long.parseLong(values.get(COMMITTED_BATCHES));
+			committedDocuments = Long.parseLong(values.get(COMMITTED_DOCUMENTS));
+
+			resumeOrdinals.putAll(ordinals);
+			nextOrdinals.putAll(ordinals);
+
+			MatchingHelper.logMessage(null, "Resuming DBLP indexing after " + committedBatches + " committed batches (" + committedDocuments + " documents)");
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while reading indexing checkpoint, indexing from the beginning");
+
+			resumeOrdinals.clear();
+			nextOrdinals.clear();
+			committedBatches = 0;
+			committedDocuments = 0;
+		}
+	}
+
+	/**
+	 * returns the number of leading records of the stream that were committed by a previous run
+	 */
+	public synchronized long getResumeOrdinal(int stream)
+	{
+		Long ordinal = resumeOrdinals.get(stream);
+
+		return ordinal != null ? ordinal : 0;
+	}
+
+	/**
+	 * returns true if records committed by a previous run are skipped
+	 */
+	public synchronized boolean isResumed()
+	{
+		for (long ordinal : resumeOrdinals.values())
+		{
+			if (ordinal > 0)
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * marks a record as added to the index (or deliberately not indexed)
+	 */
+	public synchronized void completed(int stream, long ordinal)
+	{
+		long next = getNextOrdinal(stream);
+
+		if (ordinal != next)
+		{
+			PriorityQueue<Long> pending = pendingOrdinals.get(stream);
+
+			if (pending == null)
+			{
+				pending = new PriorityQueue<Long>();
+				pendingOrdinals.put(stream, pending);
+			}
+
+			pending.add(ordinal);
+
+			return;
+		}
+
+		next++;
+
+		PriorityQueue<Long> pending = pendingOrdinals.get(stream);
+
+		while (pending != null && !pending.isEmpty() && pending.peek() == next)
+		{
+			pending.poll();
+			next++;
+		}
+
+		nextOrdinals.put(stream, next);
+	}
+
+	/**
+	 * marks all records of the stream before the given ordinal as added
+	 */
+	public synchronized void completedUpTo(int stream, long ordinal)
+	{
+		nextOrdinals.put(stream, Math.max(ordinal, getNextOrdinal(stream)));
+	}
+
+	private long getNextOrdinal(int stream)
+	{
+		Long next = nextOrdinals.get(stream);
+
+		return next != null ? next : 0;
+	}
+
+	/**
+	 * counts added documents, returns true when a hard commit and checkpoint are due
+	 */
+	public synchronized boolean added(int numberOfDocuments)
+	{
+		documentsSinceCommit += numberOfDocuments;
+
+		return documentsSinceCommit >= Config.CHECKPOINT_INTERVAL;
+	}
+
+	/**
+	 * writes the checkpoint, must be called right after a hard commit
+	 */
+	public synchronized void save()
+	{
+		committedBatches++;
+		committedDocuments += documentsSinceCommit;
+		documentsSinceCommit = 0;
+
+		try
+		{
+			File file = new File(checkpointPath);
+			File tempFile = new File(checkpointPath + ".tmp");
+
+			PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(tempFile), Charset.forName("UTF8")));
+
+			out.println(DBLP_PATH + "\t" + dblpPath);
+			out.println(FILE_SIZE + "\t" + fileSize);
+			out.println(PARSE_RANGES + "\t" + parseRanges);
+			out.println(RECORD_TYPES + "\t" + recordTypes);
+			out.println(COMMITTED_BATCHES + "\t" + committedBatches);
+			out.println(COMMITTED_DOCUMENTS + "\t" + committedDocuments);
+
+			for (Entry<Integer, Long> entry : nextOrdinals.entrySet())
+			{
+				out.println(STREAM + "\t" + entry.getKey() + "\t" + entry.getValue());
+			}
+
+			out.close();
+
+			// replace the previous checkpoint in one step, so a crash never leaves a partial file
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while writing indexing checkpoint");
+		}
+	}
+}
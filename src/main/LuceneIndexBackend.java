@@ -0,0 +1,569 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import main.MatchingHelper.Field;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.Version;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.params.DisMaxParams;
+
+/**
+ * index stored in a local Lucene directory, written and searched in-process
+ * <br> fields are indexed as declared in solr/conf/schema.xml: text_general fields with the standard analyzer
+ * (no stopwords, lowercased), string fields as single terms, int fields as numeric fields
+ * <br> queries use the Lucene classic syntax, as the Solr standard query parser does
+ */
+public class LuceneIndexBackend implements MergeableIndexBackend
+{
+	static final Version VERSION = Version.LUCENE_40;
+
+	private static final double RAM_BUFFER_SIZE_MB = 256;
+
+	// number of distinct filter query combinations whose document sets are kept, as Solr's filter cache does
+	private static final int FILTER_CACHE_SIZE = 512;
+
+	private static final String ID = Field.ID.toString().toLowerCase();
+
+	// field types of schema.xml, all other fields are strings
+	private static final Set<String> TEXT_FIELDS = new HashSet<String>(Arrays.asList(
+			Field.TITLE.toString().toLowerCase(),
+			Field.NSW_TITLE.toString().toLowerCase(),
+			Field.AUTHOR.toString().toLowerCase()));
+
+	private static final Set<String> INT_FIELDS = new HashSet<String>(Arrays.asList(
+			Field.YEAR.toString().toLowerCase(),
+			Field.PAGES.toString().toLowerCase(),
+			Field.TITLE_TOKEN_COUNT.toString().toLowerCase()));
+
+	private static final Set<String> STORED_ONLY_FIELDS = new HashSet<String>(Arrays.asList(
+			Field.TITLE_TOKENS.toString().toLowerCase()));
+
+	private static final Set<String> INDEXED_ONLY_FIELDS = new HashSet<String>(Arrays.asList(
+			Field.TITLE_FINGERPRINT.toString().toLowerCase(),
+			Field.AUTHOR_BLOCK.toString().toLowerCase()));
+
+	private static final Set<String> MULTI_VALUED_FIELDS = new HashSet<String>(Arrays.asList(
+			Field.AUTHOR.toString().toLowerCase(),
+			Field.TITLE_TOKENS.toString().toLowerCase(),
+			Field.AUTHOR_KEYS.toString().toLowerCase()));
+
+	private final Directory directory;
+	private final Analyzer analyzer;
+
+	// created on the first update, so that read-only runs do not lock the index
+	private IndexWriter writer;
+	private SearcherManager searcherManager;
+
+	// filters by filter queries, least recently used first
+	private final Map<String, Filter> filterCache = new LinkedHashMap<String, Filter>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Filter> eldest)
+		{
+			return size() > FILTER_CACHE_SIZE;
+		}
+	};
+
+	public LuceneIndexBackend(String indexPath) throws IOException
+	{
+		directory = FSDirectory.open(new File(indexPath));
+
+		Map<String, Analyzer> fieldAnalyzers = new HashMap<String, Analyzer>();
+
+		for (Field field : Field.values())
+		{
+			String name = field.toString().toLowerCase();
+
+			if (!TEXT_FIELDS.contains(name))
+			{
+				fieldAnalyzers.put(name, new KeywordAnalyzer());
+			}
+		}
+
+		analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(VERSION, CharArraySet.EMPTY_SET), fieldAnalyzers);
+	}
+
+	private synchronized IndexWriter getWriter() throws IOException
+	{
+		if (writer == null)
+		{
+			IndexWriterConfig config = new IndexWriterConfig(VERSION, analyzer);
+			config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+			config.setRAMBufferSizeMB(RAM_BUFFER_SIZE_MB);
+
+			writer = new IndexWriter(directory, config);
+		}
+
+		return writer;
+	}
+
+	/**
+	 * returns the searcher manager, near-real-time on the writer if this backend writes the index
+	 */
+	private synchronized SearcherManager getSearcherManager() throws IOException
+	{
+		if (searcherManager == null)
+		{
+			searcherManager = writer != null ? new SearcherManager(writer, true, null) : new SearcherManager(directory, null);
+		}
+
+		return searcherManager;
+	}
+
+	/**
+	 * adds the documents, replacing documents with the same id as Solr does for the unique key
+	 */
+	public void add(Collection<SolrInputDocument> docs) throws Exception
+	{
+		IndexWriter indexWriter = getWriter();
+
+		for (SolrInputDocument doc : docs)
+		{
+			indexWriter.updateDocument(new Term(ID, (String)doc.getFieldValue(ID)), createLuceneDocument(doc));
+		}
+	}
+
+	public void softCommit() throws Exception
+	{
+		getSearcherManager().maybeRefresh();
+	}
+
+	public void commit() throws Exception
+	{
+		if (writer != null)
+		{
+			writer.commit();
+			getSearcherManager().maybeRefresh();
+		}
+	}
+
+	public void optimize() throws Exception
+	{
+		if (writer != null)
+		{
+			writer.forceMerge(1);
+			writer.commit();
+		}
+	}
+
+	public void deleteById(List<String> ids) throws Exception
+	{
+		Term[] terms = new Term[ids.size()];
+
+		for (int i = 0; i < terms.length; i++)
+		{
+			terms[i] = new Term(ID, ids.get(i));
+		}
+
+		getWriter().deleteDocuments(terms);
+	}
+
+	public void deleteAll() throws Exception
+	{
+		getWriter().deleteAll();
+	}
+
+	/**
+	 * copies the segments of the given Lucene indexes into this index, after closing their writers
+	 */
+	public void addIndexes(List<IndexBackend> indexes) throws Exception
+	{
+		Directory[] directories = new Directory[indexes.size()];
+
+		for (int i = 0; i < directories.length; i++)
+		{
+			LuceneIndexBackend index = (LuceneIndexBackend)indexes.get(i);
+			index.closeWriter();
+
+			directories[i] = index.directory;
+		}
+
+		IndexWriter indexWriter = getWriter();
+		indexWriter.deleteAll();
+		indexWriter.addIndexes(directories);
+
+		commit();
+	}
+
+	public SolrDocumentList query(SolrQuery solrQuery) throws Exception
+	{
+		Query query = parse(solrQuery);
+		Filter filter = solrQuery.getFilterQueries() != null ? getFilter(solrQuery.getFilterQueries()) : null;
+
+		int start = solrQuery.getStart() != null ? solrQuery.getStart() : 0;
+		int rows = solrQuery.getRows() != null ? solrQuery.getRows() : 10;
+
+		Set<String> fields = solrQuery.getFields() != null ? new HashSet<String>(Arrays.asList(solrQuery.getFields().split("[,\\s]+"))) : null;
+
+		SearcherManager manager = getSearcherManager();
+		IndexSearcher searcher = manager.acquire();
+
+		try
+		{
+			// rows is Integer.MAX_VALUE when all hits are requested
+			int numberOfHits = (int)Math.max(1, Math.min((long)start + rows, searcher.getIndexReader().maxDoc()));
+
+			TopDocs topDocs = searcher.search(query, filter, numberOfHits);
+
+			SolrDocumentList results = new SolrDocumentList();
+			results.setNumFound(topDocs.totalHits);
+			results.setStart(start);
+
+			for (int i = start; i < topDocs.scoreDocs.length; i++)
+			{
+				ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+
+				SolrDocument result = createSolrDocument(searcher.doc(scoreDoc.doc), fields);
+
+				if (fields != null && fields.contains(SCORE))
+				{
+					result.setField(SCORE, scoreDoc.score);
+				}
+
+				results.add(result);
+			}
+
+			return results;
+		}
+		finally
+		{
+			manager.release(searcher);
+		}
+	}
+
+	public long getVersion() throws Exception
+	{
+		SearcherManager manager = getSearcherManager();
+		IndexSearcher searcher = manager.acquire();
+
+		try
+		{
+			return ((DirectoryReader)searcher.getIndexReader()).getVersion();
+		}
+		finally
+		{
+			manager.release(searcher);
+		}
+	}
+
+	/**
+	 * enumerates the terms of the field over all segments, deleted documents are still counted as in Solr
+	 */
+	public Map<String, Integer> getDocumentFrequencies(String field) throws Exception
+	{
+		Map<String, Integer> frequencies = new HashMap<String, Integer>();
+
+		SearcherManager manager = getSearcherManager();
+		IndexSearcher searcher = manager.acquire();
+
+		try
+		{
+			Terms terms = MultiFields.getTerms(searcher.getIndexReader(), field);
+
+			if (terms != null)
+			{
+				TermsEnum termsEnum = terms.iterator(null);
+				BytesRef term;
+
+				while ((term = termsEnum.next()) != null)
+				{
+					frequencies.put(term.utf8ToString(), termsEnum.docFreq());
+				}
+			}
+
+			return frequencies;
+		}
+		finally
+		{
+			manager.release(searcher);
+		}
+	}
+
+	public void close()
+	{
+		try
+		{
+			closeWriter();
+
+			directory.close();
+		}
+		catch (IOException ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while closing Lucene index");
+		}
+	}
+
+	/**
+	 * commits and closes the writer and the searchers, they are opened again when needed
+	 */
+	private synchronized void closeWriter() throws IOException
+	{
+		if (searcherManager != null)
+		{
+			searcherManager.close();
+			searcherManager = null;
+		}
+
+		if (writer != null)
+		{
+			writer.close();
+			writer = null;
+		}
+	}
+
+	/**
+	 * returns the filter matching all filter queries, its document sets are cached per index segment
+	 */
+	private Filter getFilter(String[] filterQueries) throws ParseException
+	{
+		String key = Arrays.toString(filterQueries);
+
+		synchronized (filterCache)
+		{
+			Filter filter = filterCache.get(key);
+
+			if (filter == null)
+			{
+				BooleanQuery filterQuery = new BooleanQuery();
+
+				for (String fq : filterQueries)
+				{
+					filterQuery.add(parse(fq, Field.TITLE.toString().toLowerCase()), BooleanClause.Occur.MUST);
+				}
+
+				filter = new CachingWrapperFilter(new QueryWrapperFilter(filterQuery));
+				filterCache.put(key, filter);
+			}
+
+			return filter;
+		}
+	}
+
+	/**
+	 * parses q, clauses of edismax queries are searched in the qf field and at least mm of them must match
+	 * <br> only a single qf field and an integer mm are supported; as in Solr, mm is capped by the number of optional clauses
+	 */
+	private Query parse(SolrQuery solrQuery) throws ParseException
+	{
+		if (!EDISMAX.equals(solrQuery.get(DEF_TYPE)))
+		{
+			return parse(solrQuery.getQuery(), Field.TITLE.toString().toLowerCase());
+		}
+
+		Query query = parse(solrQuery.getQuery(), solrQuery.get(DisMaxParams.QF) != null ? solrQuery.get(DisMaxParams.QF) : Field.TITLE.toString().toLowerCase());
+
+		String minimumShouldMatch = solrQuery.get(DisMaxParams.MM);
+
+		// a single clause is not parsed into a boolean query, it must match anyway
+		if (minimumShouldMatch != null && query instanceof BooleanQuery)
+		{
+			BooleanQuery booleanQuery = (BooleanQuery)query;
+
+			int optionalClauses = 0;
+
+			for (BooleanClause clause : booleanQuery.getClauses())
+			{
+				if (clause.getOccur() == BooleanClause.Occur.SHOULD)
+				{
+					optionalClauses++;
+				}
+			}
+
+			booleanQuery.setMinimumNumberShouldMatch(Math.min(parseInt(minimumShouldMatch), optionalClauses));
+		}
+
+		return query;
+	}
+
+	/**
+	 * parses a query in the classic syntax, terms on int fields become numeric queries
+	 */
+	private Query parse(String query, String defaultField) throws ParseException
+	{
+		QueryParser parser = new QueryParser(VERSION, defaultField, analyzer)
+		{
+			@Override
+			protected Query getFieldQuery(String field, String queryText, boolean quoted) throws ParseException
+			{
+				if (INT_FIELDS.contains(field))
+				{
+					int value = parseInt(queryText);
+
+					return NumericRangeQuery.newIntRange(field, value, value, true, true);
+				}
+
+				return super.getFieldQuery(field, queryText, quoted);
+			}
+
+			@Override
+			protected Query getRangeQuery(String field, String part1, String part2, boolean startInclusive, boolean endInclusive) throws ParseException
+			{
+				if (INT_FIELDS.contains(field))
+				{
+					Integer lower = part1 == null || "*".equals(part1) ? null : parseInt(part1);
+					Integer upper = part2 == null || "*".equals(part2) ? null : parseInt(part2);
+
+					return NumericRangeQuery.newIntRange(field, lower, upper, startInclusive, endInclusive);
+				}
+
+				return super.getRangeQuery(field, part1, part2, startInclusive, endInclusive);
+			}
+		};
+
+		return parser.parse(query);
+	}
+
+	private static int parseInt(String value) throws ParseException
+	{
+		try
+		{
+			return Integer.parseInt(value);
+		}
+		catch (NumberFormatException ex)
+		{
+			throw new ParseException("Integer expected instead of '" + value + "'");
+		}
+	}
+
+	/**
+	 * converts a Solr input document, values of int fields that are not numbers are dropped as Solr would reject them
+	 */
+	private Document createLuceneDocument(SolrInputDocument solrDocument)
+	{
+		Document document = new Document();
+
+		for (SolrInputField field : solrDocument)
+		{
+			String name = field.getName();
+
+			for (Object value : field.getValues())
+			{
+				if (value == null)
+				{
+					continue;
+				}
+
+				if (INT_FIELDS.contains(name))
+				{
+					try
+					{
+						document.add(new IntField(name, Integer.parseInt(value.toString().trim()), org.apache.lucene.document.Field.Store.YES));
+					}
+					catch (NumberFormatException ex)
+					{
+						MatchingHelper.logMessage(null, "Value '" + value + "' of field '" + name + "' is not a number, document '" + solrDocument.getFieldValue(ID) + "'");
+					}
+				}
+				else if (TEXT_FIELDS.contains(name))
+				{
+					document.add(new TextField(name, value.toString(), org.apache.lucene.document.Field.Store.YES));
+				}
+				else if (STORED_ONLY_FIELDS.contains(name))
+				{
+					document.add(new StoredField(name, value.toString()));
+				}
+				else if (INDEXED_ONLY_FIELDS.contains(name))
+				{
+					document.add(new StringField(name, value.toString(), org.apache.lucene.document.Field.Store.NO));
+				}
+				else
+				{
+					document.add(new StringField(name, value.toString(), org.apache.lucene.document.Field.Store.YES));
+				}
+			}
+		}
+
+		return document;
+	}
+
+	/**
+	 * converts a stored Lucene document, multi-valued fields are returned as lists even with a single value
+	 */
+	private SolrDocument createSolrDocument(Document document, Set<String> fields)
+	{
+		SolrDocument solrDocument = new SolrDocument();
+
+		for (IndexableField field : document.getFields())
+		{
+			String name = field.name();
+
+			if (fields != null && !fields.contains(name) && !fields.contains("*"))
+			{
+				continue;
+			}
+
+			Object value = field.numericValue() != null ? field.numericValue() : field.stringValue();
+
+			if (MULTI_VALUED_FIELDS.contains(name))
+			{
+				@SuppressWarnings("unchecked")
+				List<Object> values = (List<Object>)solrDocument.getFieldValue(name);
+
+				if (values == null)
+				{
+					values = new ArrayList<Object>();
+					solrDocument.setField(name, values);
+				}
+
+				values.add(value);
+			}
+			else
+			{
+				solrDocument.setField(name, value);
+			}
+		}
+
+		return solrDocument;
+	}
+}
@@ -8,6 +8,12 @@ import java.io.InputStreamReader;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.bind.JAXBContext;
 
@@ -45,88 +51,71 @@ public class MainClass
 			// delete all previously indexed documents
 			//solrHandler.deleteAllIndexedPublications();
 			
+			// compile DBLP entries into a binary snapshot
+			if (Config.COMPILE_SNAPSHOT)
+			{
+				System.out.println("compiling dblp snapshot...");
+				DblpSnapshot.compile(Config.DBLP_PATH, Config.SNAPSHOT_PATH);
+				System.out.println("compiling dblp snapshot -- done");
+			}
+			
 			// index DBLP entries
 			if (Config.BUILD_INDEX)
 			{
 				System.out.println("indexing dblp...");
-				solrHandler.indexDblp(Config.DBLP_PATH);
+				solrHandler.indexDblp("".equals(Config.SNAPSHOT_PATH) ? Config.DBLP_PATH : Config.SNAPSHOT_PATH);
+				solrHandler.close();
 				System.out.println("indexing dblp -- done");
 				System.exit(0);
 			}
 			
+			solrHandler.loadTermStatistics();
+			solrHandler.loadTitleFingerprints();
+			
 			JAXBContext jaxbContext = JAXBContext.newInstance(Document.class);
 			
 			in = new BufferedReader(new InputStreamReader(new FileInputStream(new File(Config.CITESEER_PATH))));
 			
+			// CiteSeer records are matched by QUERY_THREADS threads, their results are handled in input order
+			ExecutorService executor = Config.QUERY_THREADS > 1 ? Executors.newFixedThreadPool(Config.QUERY_THREADS) : null;
+			Deque<Future<MatchResult>> pendingResults = new ArrayDeque<Future<MatchResult>>();
+			
 			String filePath;
-						
-			while ((filePath = in.readLine()) != null)
+			
+			try
 			{
-				if (filePath.endsWith(XML_EXTENSION)) 
+				while ((filePath = in.readLine()) != null)
 				{
-					try
+					if (filePath.endsWith(XML_EXTENSION)) 
 					{
-						// read CiteSeer record
-						Document record = ModelHelper.readCiteseerRecord(filePath, jaxbContext);
+						Callable<MatchResult> task = createMatchTask(filePath, jaxbContext, solrHandler);
 						
-						if (record == null)
+						if (executor == null)
 						{
-							MatchingHelper.logMessage(null, "Skipping file '" + filePath + "'");
+							handleMatchResult(task.call());
 							continue;
 						}
 						
-						SolrHandler.currentNumberOfHits = 0;
-						long startTime = System.currentTimeMillis();
-						
-						// get matching documents
-						SolrDocument result = solrHandler.getMatchingDocuments(record, Config.THRESHOLD);
-						
-						long stopTime = System.currentTimeMillis();
+						pendingResults.addLast(executor.submit(task));
 						
-						// write number of hits and time for getting matching document (seconds)
-						MatchingHelper.hits.write(String.format("%-25s %-15s %-25s\r\n", record.getDoi(), SolrHandler.currentNumberOfHits, 1.0 * (stopTime - startTime) / 1000));
-						
-						if (result != null)
+						// QUERY_THREADS requests in flight, as many results waiting for the ones before them
+						if (pendingResults.size() >= 2 * Config.QUERY_THREADS)
 						{
-							if (Config.WRITE_MERGED_FILES)
-							{
-								// write merged file
-								Paper mergedFile = MatchingHelper.mergeEntries(record, result);
-								
-								if (mergedFile != null)
-								{
-									ModelHelper.writeModel(mergedFile, Config.MERGED_FOLDER_PATH + File.separator + record.getDoi() + XML_EXTENSION);
-								}
-							}
-	
-							if (Config.OUTPUT_STATS) // we check TP, FP, FN against manual matches
-							{
-								if (MatchingHelper.matchesMap.get(record.getDoi()) != null)
-								{
-									String correctMatchId = MatchingHelper.matchesMap.get(record.getDoi());
-									
-									String matchId = (String)result.getFieldValue(Field.ID.toString().toLowerCase());
-									
-									if (matchId.equals(correctMatchId))
-									{
-										MatchingHelper.TRUE_POSITIVES++;
-									}
-									else
-									{
-										MatchingHelper.FALSE_POSITIVES++;
-									}
-								}
-								else
-								{
-									MatchingHelper.FALSE_POSITIVES++;
-								}
-							}
+							handleMatchResult(pendingResults.pollFirst().get());
 						}
 					}
-					catch (Exception ex)
-					{
-						MatchingHelper.logMessage(ex, "ERROR while processing file '" + filePath + "'");
-					}
+				}
+				
+				while (!pendingResults.isEmpty())
+				{
+					handleMatchResult(pendingResults.pollFirst().get());
+				}
+			}
+			finally
+			{
+				if (executor != null)
+				{
+					executor.shutdownNow();
 				}
 			}
 			
@@ -163,6 +152,8 @@ public class MainClass
 				in.close();
 			}
 			
+			solrHandler.close();
+			
 			if (MatchingHelper.hits != null)
 			{
 				MatchingHelper.hits.close();
@@ -177,4 +168,113 @@ public class MainClass
 			}
 		}
 	}
+	
+	/**
+	 * returns the task reading the CiteSeer record and getting its matching document, the result is null if the file cannot be read
+	 */
+	private static Callable<MatchResult> createMatchTask(final String filePath, final JAXBContext jaxbContext, final SolrHandler solrHandler)
+	{
+		return new Callable<MatchResult>()
+		{
+			public MatchResult call()
+			{
+				try
+				{
+					// read CiteSeer record
+					Document record = ModelHelper.readCiteseerRecord(filePath, jaxbContext);
+					
+					if (record == null)
+					{
+						MatchingHelper.logMessage(null, "Skipping file '" + filePath + "'");
+						return null;
+					}
+					
+					long startTime = System.currentTimeMillis();
+					
+					// get matching documents
+					MatchResult result = solrHandler.getMatchingDocuments(record, Config.THRESHOLD);
+					
+					result.time = System.currentTimeMillis() - startTime;
+					
+					return result;
+				}
+				catch (Exception ex)
+				{
+					MatchingHelper.logMessage(ex, "ERROR while processing file '" + filePath + "'");
+				}
+				
+				return null;
+			}
+		};
+	}
+	
+	/**
+	 * writes the number of hits, the merged file and the statistics for a matched CiteSeer record
+	 */
+	private static void handleMatchResult(MatchResult matchResult)
+	{
+		if (matchResult == null)
+		{
+			return;
+		}
+		
+		Document record = matchResult.getRecord();
+		SolrDocument result = matchResult.getBestMatch();
+		
+		try
+		{
+			// write number of hits and time for getting matching document (seconds), and the last cascade stage queried
+			String stage = matchResult.getStage() != null ? matchResult.getStage().toString().toLowerCase() : "-";
+			
+			if (MatchingHelper.QueryMode.CASCADE.toString().equals(Config.QUERY_MODE))
+			{
+				MatchingHelper.hits.write(String.format("%-25s %-15s %-25s %-10s\r\n", record.getDoi(), matchResult.getNumberOfHits(), 1.0 * matchResult.getTime() / 1000, stage));
+			}
+			else
+			{
+				MatchingHelper.hits.write(String.format("%-25s %-15s %-25s\r\n", record.getDoi(), matchResult.getNumberOfHits(), 1.0 * matchResult.getTime() / 1000));
+			}
+			
+			if (result != null)
+			{
+				if (Config.WRITE_MERGED_FILES)
+				{
+					// write merged file
+					Paper mergedFile = MatchingHelper.mergeEntries(record, result);
+					
+					if (mergedFile != null)
+					{
+						ModelHelper.writeModel(mergedFile, Config.MERGED_FOLDER_PATH + File.separator + record.getDoi() + XML_EXTENSION);
+					}
+				}
+
+				if (Config.OUTPUT_STATS) // we check TP, FP, FN against manual matches
+				{
+					if (MatchingHelper.matchesMap.get(record.getDoi()) != null)
+					{
+						String correctMatchId = MatchingHelper.matchesMap.get(record.getDoi());
+						
+						String matchId = (String)result.getFieldValue(Field.ID.toString().toLowerCase());
+						
+						if (matchId.equals(correctMatchId))
+						{
+							MatchingHelper.TRUE_POSITIVES++;
+						}
+						else
+						{
+							MatchingHelper.FALSE_POSITIVES++;
+						}
+					}
+					else
+					{
+						MatchingHelper.FALSE_POSITIVES++;
+					}
+				}
+			}
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while writing results for paper '" + record.getDoi() + "'");
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package main;
+
+import model.citeseer.Document;
+
+import org.apache.solr.common.SolrDocument;
+
+/**
+ * outcome of matching one CiteSeer record against the DBLP index
+ */
+public class MatchResult
+{
+	// CiteSeer record, never null: records whose file could not be read have no MatchResult
+	Document record;
+
+	// best DBLP match, null if no hit passed the enabled matching features
+	SolrDocument bestMatch;
+
+	// number of DBLP hits for the title query, summed over the queries made for the record (cascade stages, author block)
+	long numberOfHits;
+	
+	// last stage queried in the cascade query mode, null in the other modes or if no stage was queried
+	MatchingHelper.CascadeStage stage;
+
+	// time spent getting the matching document (ms)
+	long time;
+
+	public Document getRecord()
+	{
+		return record;
+	}
+
+	public SolrDocument getBestMatch()
+	{
+		return bestMatch;
+	}
+
+	public long getNumberOfHits()
+	{
+		return numberOfHits;
+	}
+
+	public MatchingHelper.CascadeStage getStage()
+	{
+		return stage;
+	}
+
+	public long getTime()
+	{
+		return time;
+	}
+}
@@ -10,9 +10,13 @@ import java.io.PrintWriter;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -71,6 +75,40 @@ public class MatchingHelper
 	 */
 	public static final List<String> elementsList;
 	
+	// slack for thresholds computed in floating point, e.g. 0.7 * 10 > 7
+	private static final double EPSILON = 1e-9;
+	
+	// document frequencies of the queried title field, null if they are not loaded
+	static TermStatistics termStatistics;
+	
+	/**
+	 * global order of title tokens for prefix filtering, rarest first
+	 * <br> by document frequency when it is loaded, then longer tokens are taken as rarer
+	 */
+	static Comparator<String> tokenOrder = new Comparator<String>()
+	{
+		public int compare(String token1, String token2)
+		{
+			if (termStatistics != null)
+			{
+				int frequency1 = termStatistics.getDocumentFrequency(token1);
+				int frequency2 = termStatistics.getDocumentFrequency(token2);
+				
+				if (frequency1 != frequency2)
+				{
+					return frequency1 < frequency2 ? -1 : 1;
+				}
+			}
+			
+			if (token1.length() != token2.length())
+			{
+				return token2.length() - token1.length();
+			}
+			
+			return token1.compareTo(token2);
+		}
+	};
+	
 	/**
 	 * indexed DBLP fields
 	 */
@@ -82,7 +120,13 @@ public class MatchingHelper
 		YEAR,
 		VENUE,
 		AUTHOR,
-		PAGES
+		PAGES,
+		TITLE_TOKENS,
+		TITLE_TOKEN_COUNT,
+		AUTHOR_KEYS,
+		VENUE_KEY,
+		TITLE_FINGERPRINT,
+		AUTHOR_BLOCK
 	};
 	
 	/**
@@ -119,6 +163,37 @@ public class MatchingHelper
 		COSINE
 	};
 	
+	/**
+	 * way title queries are built
+	 */
+	enum QueryMode
+	{
+		NGRAM,
+		PREFIX,
+		CASCADE,
+		MIN_MATCH
+	};
+	
+	/**
+	 * title queries of the cascade query mode, from the most to the least selective
+	 * <br> a stage is queried only if the previous ones found no match
+	 */
+	enum CascadeStage
+	{
+		PHRASE,
+		NGRAM,
+		RELAXED
+	};
+	
+	/**
+	 * index in which DBLP entries are stored
+	 */
+	enum Backend
+	{
+		SOLR,
+		LUCENE
+	};
+	
 	/**
 	 * initializes input objects
 	 */
@@ -276,6 +351,35 @@ public class MatchingHelper
 		csPageCountMap = new HashMap<String, Integer>();
 	}
 	
+	/**
+	 * returns the stopwords removed from the titles, empty if REMOVE_STOPWORDS is disabled
+	 */
+	public static List<String> getStopWords()
+	{
+		return Collections.unmodifiableList(stopWordsList);
+	}
+	
+	/**
+	 * returns the DBLP types of publications that are indexed: all types (or those in INCLUDE_TYPES), except those in EXCLUDE_TYPES
+	 */
+	public static List<String> getIndexedElementsList()
+	{
+		List<String> includedElements = Arrays.asList(Config.INCLUDE_TYPES.split(","));
+		List<String> excludedElements = Arrays.asList(Config.EXCLUDE_TYPES.split(","));
+		
+		List<String> indexedElements = new ArrayList<String>();
+		
+		for (String element : elementsList)
+		{
+			if (("".equals(Config.INCLUDE_TYPES) || includedElements.contains(element)) && !excludedElements.contains(element))
+			{
+				indexedElements.add(element);
+			}
+		}
+		
+		return indexedElements;
+	}
+	
 	/**
 	 * merges a CiteSeer record with an entry from DBLP
 	 */
@@ -341,15 +445,40 @@ public class MatchingHelper
 	}
 	
 	/**
-	 * creates Solr query for paper title
+	 * creates Solr query for paper title, with the configured operator and n-grams
 	 */
 	public static String createTitleQuery(String title) 
+	{
+		return createTitleQuery(title, Operator.valueOf(Config.OPERATOR), Config.N_GRAMS);
+	}
+	
+	/**
+	 * creates Solr query for the stage of the cascade query mode
+	 * <br> the title phrase, then the configured n-grams, then single words
+	 */
+	public static String createTitleQuery(String title, CascadeStage stage)
+	{
+		switch (stage)
+		{
+			case PHRASE:
+				return createTitleQuery(title, Operator.AND, Config.N_GRAMS);
+			case NGRAM:
+				return createTitleQuery(title, Operator.OR, Config.N_GRAMS);
+			default:
+				return createTitleQuery(title, Operator.OR, 1);
+		}
+	}
+	
+	/**
+	 * creates Solr query for paper title: the title phrase (AND), or the disjunction of its n-gram phrases (OR)
+	 */
+	public static String createTitleQuery(String title, Operator operator, int nGrams) 
 	{
 		try
 		{
 			String fieldToQuery = Config.REMOVE_STOPWORDS ? Field.NSW_TITLE.toString().toLowerCase() : Field.TITLE.toString().toLowerCase();
 			
-			if (Operator.AND.toString().equals(Config.OPERATOR))
+			if (Operator.AND.equals(operator))
 			{
 				if (Config.REMOVE_STOPWORDS)
 				{
@@ -382,7 +511,7 @@ public class MatchingHelper
 				return "";
 			}
 			
-			if (titleWordsList.size() <= Config.N_GRAMS)
+			if (titleWordsList.size() <= nGrams)
 			{
 				titleQuery.append(fieldToQuery + ":\"");
 				
@@ -401,15 +530,15 @@ public class MatchingHelper
 				return titleQuery.toString();
 			}
 			
-			for (int i = 0; i <= titleWordsList.size() - Config.N_GRAMS; i++)
+			for (int i : getNGramPositions(titleWordsList, nGrams))
 			{
 					StringBuilder intermediateQuery = new StringBuilder("");
 					
 					intermediateQuery.append(fieldToQuery + ":\"");
 					
-					for (int j = 0; j < Config.N_GRAMS; j++)
+					for (int j = 0; j < nGrams; j++)
 					{
-						if  (j < Config.N_GRAMS - 1)
+						if  (j < nGrams - 1)
 						{
 							intermediateQuery.append(titleWordsList.get(i + j) + " ");
 						}
@@ -432,6 +561,259 @@ public class MatchingHelper
 		return "";
 	}
 	
+	/**
+	 * returns the positions of the title n-grams to query, all of them or the RARE_TOKENS most selective ones
+	 * <br> an n-gram is found in at most as many titles as its rarest word, which ranks it; n-grams with words
+	 * missing from the index are ranked last, as they are misspelled or split differently by the analyzer
+	 */
+	private static List<Integer> getNGramPositions(final List<String> titleWords, int nGrams)
+	{
+		List<Integer> positions = new ArrayList<Integer>();
+		
+		for (int i = 0; i <= titleWords.size() - nGrams; i++)
+		{
+			positions.add(i);
+		}
+		
+		if (Config.RARE_TOKENS <= 0 || termStatistics == null || positions.size() <= Config.RARE_TOKENS)
+		{
+			return positions;
+		}
+		
+		final Map<Integer, Long> frequencies = new HashMap<Integer, Long>();
+		
+		for (int i : positions)
+		{
+			long frequency = Long.MAX_VALUE;
+			
+			for (String word : titleWords.subList(i, i + nGrams))
+			{
+				if (!termStatistics.contains(word))
+				{
+					frequency = Long.MAX_VALUE;
+					break;
+				}
+				
+				frequency = Math.min(frequency, termStatistics.getDocumentFrequency(word));
+			}
+			
+			frequencies.put(i, frequency);
+		}
+		
+		// stable, n-grams equally rare are taken in title order
+		Collections.sort(positions, new Comparator<Integer>()
+		{
+			public int compare(Integer position1, Integer position2)
+			{
+				return frequencies.get(position1).compareTo(frequencies.get(position2));
+			}
+		});
+		
+		positions = new ArrayList<Integer>(positions.subList(0, Config.RARE_TOKENS));
+		Collections.sort(positions);
+		
+		return positions;
+	}
+	
+	/**
+	 * creates Solr query for the DBLP titles that can reach the similarity threshold (prefix filtering)
+	 * <br> with the n distinct title tokens in the global token order, a title whose Jaccard similarity reaches t
+	 * shares at least ceil(t * n) tokens, hence one of the first n - ceil(t * n) + 1; for cosine, tokens shared only
+	 * among those left out bound the similarity by the square root of their share of the squared frequencies,
+	 * so tokens are taken until the rest weighs less than t * t; the query is the disjunction of the tokens taken
+	 * <br> the empty token may be shared without being searched, its weight is taken off the weight the others must reach
+	 * <br> the tokens are searched in the title field, which keeps the stopwords, as the similarity does
+	 */
+	public static String createPrefixTitleQuery(String title, double threshold)
+	{
+		try
+		{
+			boolean isCosine = Similarity.COSINE.toString().equals(Config.SIMILARITY.toUpperCase());
+			
+			Map<String, Integer> frequencies = new HashMap<String, Integer>();
+			
+			for (String token : getTitleTokens(title))
+			{
+				Integer frequency = frequencies.get(token);
+				frequencies.put(token, frequency != null ? frequency + 1 : 1);
+			}
+			
+			// left by leading punctuation, cannot be searched
+			Integer emptyTokenFrequency = frequencies.remove("");
+			
+			if (frequencies.size() == 0)
+			{
+				return "";
+			}
+			
+			List<String> tokens = new ArrayList<String>(frequencies.keySet());
+			Collections.sort(tokens, tokenOrder);
+			
+			// each token weighs 1 for Jaccard, its squared frequency for cosine
+			double remainingWeight = 0;
+			
+			for (String token : tokens)
+			{
+				remainingWeight += getPrefixWeight(frequencies.get(token), isCosine);
+			}
+			
+			double emptyTokenWeight = emptyTokenFrequency != null ? getPrefixWeight(emptyTokenFrequency, isCosine) : 0;
+			
+			double minWeight = (isCosine ? threshold * threshold : threshold) * (remainingWeight + emptyTokenWeight) - emptyTokenWeight - EPSILON;
+			
+			String fieldToQuery = Field.TITLE.toString().toLowerCase();
+			
+			StringBuilder titleQuery = new StringBuilder();
+			
+			for (int i = 0; i < tokens.size() && (i == 0 || remainingWeight >= minWeight); i++)
+			{
+				if (i > 0)
+				{
+					titleQuery.append(" OR ");
+				}
+				
+				titleQuery.append(fieldToQuery + ":\"" + tokens.get(i) + "\"");
+				
+				remainingWeight -= getPrefixWeight(frequencies.get(tokens.get(i)), isCosine);
+			}
+			
+			return titleQuery.toString();
+		}
+		catch (Exception ex)
+		{
+			logMessage(ex, "ERROR while building prefix title query");
+		}
+		
+		return "";
+	}
+	
+	private static double getPrefixWeight(int frequency, boolean isCosine)
+	{
+		return isCosine ? frequency * frequency : 1;
+	}
+	
+	/**
+	 * creates the disjunction of the distinct title tokens, each a clause of its own for minimum should match
+	 * <br> the tokens are quoted so that those spelling operators (and, or, not) are searched as words
+	 */
+	public static String createTokenTitleQuery(String title)
+	{
+		Set<String> tokens = new LinkedHashSet<String>(getTitleTokens(title));
+		
+		// left by leading punctuation, cannot be searched
+		tokens.remove("");
+		
+		StringBuilder titleQuery = new StringBuilder();
+		
+		for (String token : tokens)
+		{
+			if (titleQuery.length() > 0)
+			{
+				titleQuery.append(' ');
+			}
+			
+			titleQuery.append("\"" + token + "\"");
+		}
+		
+		return titleQuery.toString();
+	}
+	
+	/**
+	 * returns the number of clauses of the token title query that a DBLP title reaching the similarity threshold matches at least
+	 * <br> with the n distinct title tokens, a title whose Jaccard similarity reaches t shares at least ceil(t * n) of them;
+	 * for cosine, the shared tokens weigh at least t * t of the squared frequencies, so the heaviest tokens are counted
+	 * until they reach that weight; the empty token may be shared without being searched, it is taken off the count
+	 */
+	public static int getMinimumShouldMatch(String title, double threshold)
+	{
+		boolean isCosine = Similarity.COSINE.toString().equals(Config.SIMILARITY.toUpperCase());
+		
+		Map<String, Integer> frequencies = new HashMap<String, Integer>();
+		
+		for (String token : getTitleTokens(title))
+		{
+			Integer frequency = frequencies.get(token);
+			frequencies.put(token, frequency != null ? frequency + 1 : 1);
+		}
+		
+		double totalWeight = 0;
+		
+		for (int frequency : frequencies.values())
+		{
+			totalWeight += getPrefixWeight(frequency, isCosine);
+		}
+		
+		double minWeight = (isCosine ? threshold * threshold : threshold) * totalWeight - EPSILON;
+		
+		Integer emptyTokenFrequency = frequencies.remove("");
+		
+		if (emptyTokenFrequency != null)
+		{
+			minWeight -= getPrefixWeight(emptyTokenFrequency, isCosine);
+		}
+		
+		List<Integer> tokenFrequencies = new ArrayList<Integer>(frequencies.values());
+		Collections.sort(tokenFrequencies, Collections.reverseOrder());
+		
+		int minimumShouldMatch = 0;
+		double weight = 0;
+		
+		while (minimumShouldMatch < tokenFrequencies.size() && weight < minWeight)
+		{
+			weight += getPrefixWeight(tokenFrequencies.get(minimumShouldMatch++), isCosine);
+		}
+		
+		return Math.max(1, minimumShouldMatch);
+	}
+	
+	/**
+	 * creates the call of the titlesim function of solr/plugin, the similarity of the stored title tokens with the paper title
+	 * <br> the sorted tokens are separated by single spaces, empty tokens included; they never contain quotes or
+	 * backslashes, which are punctuation
+	 */
+	public static String createSimilarityFunction(String title)
+	{
+		List<String> titleTokens = getTitleTokens(title);
+		
+		StringBuilder tokens = new StringBuilder();
+		
+		for (int i = 0; i < titleTokens.size(); i++)
+		{
+			if (i > 0)
+			{
+				tokens.append(' ');
+			}
+			
+			tokens.append(titleTokens.get(i));
+		}
+		
+		return "titlesim(" + Field.TITLE_TOKENS.toString().toLowerCase() + ",\"" + tokens + "\"," + Config.SIMILARITY.toLowerCase() + ")";
+	}
+	
+	/**
+	 * creates Solr filter query for the years within YEAR_WINDOW of the paper year
+	 * <br> returns null if the year is missing or not a number, the paper is then matched against all years
+	 * <br> the filter depends only on the year, so Solr's filter cache answers it for all papers of that year
+	 */
+	public static String createYearFilterQuery(String year)
+	{
+		if (year == null)
+		{
+			return null;
+		}
+		
+		try
+		{
+			int value = Integer.parseInt(year.trim());
+			
+			return Field.YEAR.toString().toLowerCase() + ":[" + (value - Config.YEAR_WINDOW) + " TO " + (value + Config.YEAR_WINDOW) + "]";
+		}
+		catch (NumberFormatException ex)
+		{
+			return null;
+		}
+	}
+	
 	/**
 	 * removes stopwords and punctuation from title
 	 */
@@ -460,6 +842,141 @@ public class MatchingHelper
 		return "";
 	}
 	
+	/**
+	 * returns the sorted lowercase title tokens, with repetitions, as split by the similarity measures
+	 */
+	public static List<String> getTitleTokens(String title)
+	{
+		List<String> titleTokens = new ArrayList<String>(Arrays.asList(title.toLowerCase().split(PUNCTUATION_REGEX)));
+		
+		Collections.sort(titleTokens);
+		
+		return titleTokens;
+	}
+	
+	/**
+	 * returns the distinct lowercase last names of the authors, sorted and separated by single spaces, null if there are none
+	 * <br> entries with the same authors share the block, whatever the order and the first names of their authors
+	 */
+	public static String getAuthorBlock(Collection<String> authors)
+	{
+		Set<String> lastNames = new TreeSet<String>();
+		
+		for (String lastName : getAuthorsLastNames(new TreeSet<String>(authors)))
+		{
+			if (lastName.trim().length() > 0)
+			{
+				lastNames.add(lastName.trim().toLowerCase());
+			}
+		}
+		
+		if (lastNames.isEmpty())
+		{
+			return null;
+		}
+		
+		StringBuilder authorBlock = new StringBuilder();
+		
+		for (String lastName : lastNames)
+		{
+			if (authorBlock.length() > 0)
+			{
+				authorBlock.append(' ');
+			}
+			
+			authorBlock.append(lastName);
+		}
+		
+		return authorBlock.toString();
+	}
+	
+	/**
+	 * returns the lowercase title tokens in title order, separated by single spaces
+	 * <br> titles differing only in case and punctuation have the same normalized title, and similarity 1
+	 */
+	public static String normalizeTitle(String title)
+	{
+		StringBuilder normalizedTitle = new StringBuilder();
+		
+		for (String token : title.toLowerCase().split(PUNCTUATION_REGEX))
+		{
+			if (token.length() > 0)
+			{
+				if (normalizedTitle.length() > 0)
+				{
+					normalizedTitle.append(' ');
+				}
+				
+				normalizedTitle.append(token);
+			}
+		}
+		
+		return normalizedTitle.toString();
+	}
+	
+	/**
+	 * returns the 64-bit FNV-1a hash of the normalized title, 0 for titles without tokens
+	 */
+	public static long getTitleFingerprint(String normalizedTitle)
+	{
+		if (normalizedTitle.length() == 0)
+		{
+			return 0;
+		}
+		
+		long hash = 0xcbf29ce484222325L;
+		
+		for (int i = 0; i < normalizedTitle.length(); i++)
+		{
+			hash ^= normalizedTitle.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		
+		return hash;
+	}
+	
+	/**
+	 * returns the fingerprint as indexed, 16 hexadecimal digits
+	 */
+	public static String formatTitleFingerprint(long fingerprint)
+	{
+		return String.format("%016x", fingerprint);
+	}
+	
+	/**
+	 * returns the number of distinct tokens in a sorted token list
+	 */
+	public static int countDistinctTokens(List<String> sortedTokens)
+	{
+		int count = 0;
+		
+		for (int i = 0; i < sortedTokens.size(); i++)
+		{
+			if (i == 0 || !sortedTokens.get(i).equals(sortedTokens.get(i - 1)))
+			{
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * returns the sorted, distinct last names of the authors
+	 */
+	public static List<String> getAuthorKeys(Collection<String> authors)
+	{
+		return new ArrayList<String>(new TreeSet<String>(getAuthorsLastNames(new TreeSet<String>(authors))));
+	}
+	
+	/**
+	 * returns the venue lowercased, with punctuation and repeated whitespace replaced by a single space
+	 */
+	public static String getVenueKey(String venue)
+	{
+		return venue.toLowerCase().replaceAll(PUNCTUATION_REGEX, " ").trim();
+	}
+	
 	/**
 	 * returns a list with the last names of the authors (last name = last token)
 	 */
@@ -688,6 +1205,21 @@ public class MatchingHelper
 		return false;
 	}
 	
+	/**
+	 * returns true if the venues are a perfect match or, with NORMALIZE_VENUE, if the normalized CiteSeer venue
+	 * equals the venue key of the DBLP entry
+	 * <br> falls back to the exact venue match for entries indexed without venue key
+	 */
+	public static boolean venueMatches(Document citeSeer, String citeSeerVenueKey, SolrDocument dblp) 
+	{
+		if (!Config.NORMALIZE_VENUE || !(dblp.getFieldValue(Field.VENUE_KEY.toString().toLowerCase()) instanceof String))
+		{
+			return venueMatches(citeSeer, dblp);
+		}
+		
+		return dblp.getFieldValue(Field.VENUE_KEY.toString().toLowerCase()).equals(citeSeerVenueKey);
+	}
+	
 	/**
 	 * returns true if CiteSeer and DBLP venues are perfect match
 	 */
@@ -715,6 +1247,20 @@ public class MatchingHelper
 		return false;
 	}
 
+	/**
+	 * checks if CiteSeer authors last names are included in the author keys of the DBLP entry
+	 * <br> falls back to computing the DBLP last names for entries indexed without author keys
+	 */
+	public static boolean isAuthorsInclusionChecked(Document citeSeer, List<String> citeSeerAuthorKeys, SolrDocument dblp)
+	{
+		if (citeSeerAuthorKeys == null || !(dblp.getFieldValue(Field.AUTHOR_KEYS.toString().toLowerCase()) instanceof ArrayList<?>))
+		{
+			return isAuthorsInclusionChecked(citeSeer, dblp);
+		}
+		
+		return ((ArrayList<?>)dblp.getFieldValue(Field.AUTHOR_KEYS.toString().toLowerCase())).containsAll(citeSeerAuthorKeys);
+	}
+	
 	/**
 	 * checks if CiteSeer authors last names list is included in DBLP authors last names list
 	 */
@@ -0,0 +1,14 @@
+package main;
+
+import java.util.List;
+
+/**
+ * single index into which other indexes of the same backend can be merged, as the shards of a {@link ShardedIndexBackend}
+ */
+public interface MergeableIndexBackend extends IndexBackend
+{
+	/**
+	 * replaces the content of this index with the union of the given indexes, which are committed and of the same backend
+	 */
+	void addIndexes(List<IndexBackend> indexes) throws Exception;
+}
@@ -0,0 +1,276 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.JavaBinCodec;
+
+/**
+ * on-disk cache of query responses, kept between runs
+ * <br> entries are keyed by the query parameters (q, fq, start, rows, fl) and the index version, so a changed index
+ * is never answered from the cache; the hits are stored in Solr's javabin format
+ * <br> each entry is a file named after the SHA-1 of its key; when the total size exceeds the limit,
+ * the least recently used entries are deleted, their use being recorded in the file modification time
+ */
+public class QueryCache
+{
+	private static final Charset UTF8 = Charset.forName("UTF8");
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final File folder;
+	private final long maxSize;
+
+	// entry file names and sizes, least recently used first
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+	private long size = 0;
+
+	private long hits = 0;
+	private long misses = 0;
+
+	public QueryCache(String folderPath, long maxSize)
+	{
+		this.folder = new File(folderPath);
+		this.maxSize = maxSize;
+
+		folder.mkdirs();
+
+		load();
+	}
+
+	/**
+	 * registers the entries of previous runs, in order of last use
+	 */
+	private void load()
+	{
+		List<File> files = new ArrayList<File>();
+
+		File[] subfolders = folder.listFiles();
+
+		for (File subfolder : subfolders != null ? subfolders : new File[0])
+		{
+			File[] subfolderFiles = subfolder.listFiles();
+
+			if (subfolderFiles != null)
+			{
+				files.addAll(Arrays.asList(subfolderFiles));
+			}
+		}
+
+		File[] sortedFiles = files.toArray(new File[files.size()]);
+
+		Arrays.sort(sortedFiles, new Comparator<File>()
+		{
+			public int compare(File file1, File file2)
+			{
+				return Long.valueOf(file1.lastModified()).compareTo(file2.lastModified());
+			}
+		});
+
+		for (File file : sortedFiles)
+		{
+			// leftovers of interrupted writes
+			if (file.getName().endsWith(".tmp"))
+			{
+				file.delete();
+				continue;
+			}
+
+			entries.put(file.getName(), file.length());
+			size += file.length();
+		}
+
+		evict();
+
+		MatchingHelper.logMessage(null, "Query cache '" + folder.getPath() + "': " + entries.size() + " entries, " + size / (1024 * 1024) + " MB");
+	}
+
+	/**
+	 * returns the cached hits of the query on the given index version, null if they are not cached
+	 */
+	public SolrDocumentList get(SolrQuery query, long version)
+	{
+		String key = getKey(query, version);
+		String name = getName(key);
+
+		synchronized (this)
+		{
+			if (entries.get(name) == null)
+			{
+				misses++;
+				return null;
+			}
+		}
+
+		File file = getFile(name);
+
+		try
+		{
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+
+			try
+			{
+				byte[] keyBytes = new byte[in.readInt()];
+				in.readFully(keyBytes);
+
+				// the name is a hash of the key
+				if (key.equals(new String(keyBytes, UTF8)))
+				{
+					SolrDocumentList results = (SolrDocumentList)new JavaBinCodec().unmarshal(in);
+
+					file.setLastModified(System.currentTimeMillis());
+
+					synchronized (this)
+					{
+						hits++;
+					}
+
+					return results;
+				}
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while reading query cache entry '" + file.getPath() + "'");
+		}
+
+		synchronized (this)
+		{
+			misses++;
+		}
+
+		return null;
+	}
+
+	/**
+	 * stores the hits of the query on the given index version, then evicts entries if the cache is too large
+	 */
+	public void put(SolrQuery query, long version, SolrDocumentList results)
+	{
+		String key = getKey(query, version);
+		String name = getName(key);
+
+		File file = getFile(name);
+		file.getParentFile().mkdirs();
+
+		try
+		{
+			File tempFile = File.createTempFile(name, ".tmp", file.getParentFile());
+
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE));
+
+			try
+			{
+				byte[] keyBytes = key.getBytes(UTF8);
+
+				out.writeInt(keyBytes.length);
+				out.write(keyBytes);
+
+				new JavaBinCodec().marshal(results, out);
+			}
+			finally
+			{
+				out.close();
+			}
+
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			synchronized (this)
+			{
+				Long previousSize = entries.put(name, file.length());
+
+				size += file.length() - (previousSize != null ? previousSize : 0);
+
+				evict();
+			}
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while writing query cache entry '" + file.getPath() + "'");
+		}
+	}
+
+	/**
+	 * deletes the least recently used entries until the cache fits its size limit
+	 */
+	private synchronized void evict()
+	{
+		Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+
+		while (size > maxSize && iterator.hasNext())
+		{
+			Map.Entry<String, Long> entry = iterator.next();
+
+			getFile(entry.getKey()).delete();
+			size -= entry.getValue();
+
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * logs the number of queries answered from the cache
+	 */
+	public synchronized void close()
+	{
+		MatchingHelper.logMessage(null, "Query cache: " + hits + " hits, " + misses + " misses, " + entries.size() + " entries, " + size / (1024 * 1024) + " MB");
+	}
+
+	private static String getKey(SolrQuery query, long version)
+	{
+		return version + "\n" + query.toString();
+	}
+
+	/**
+	 * returns the hexadecimal SHA-1 of the key
+	 */
+	private static String getName(String key)
+	{
+		try
+		{
+			StringBuilder name = new StringBuilder();
+
+			for (byte b : MessageDigest.getInstance("SHA-1").digest(key.getBytes(UTF8)))
+			{
+				name.append(String.format("%02x", b & 0xFF));
+			}
+
+			return name.toString();
+		}
+		catch (Exception ex)
+		{
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * entries are spread over 256 subfolders, named after the first byte of the hash
+	 */
+	private File getFile(String name)
+	{
+		return new File(new File(folder, name.substring(0, 2)), name);
+	}
+}
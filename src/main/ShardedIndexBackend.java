@@ -0,0 +1,433 @@
+package main;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+
+/**
+ * index partitioned into shards, each of them written by its own thread
+ * <br> documents are routed by the hash of their id, so all updates of a DBLP entry go to the same shard, in order
+ * <br> the shards can be merged into a target index once indexing is done, queries then go to the target;
+ * without a target, queries go to every shard and the hits are merged by score
+ */
+public class ShardedIndexBackend implements IndexBackend
+{
+	// batches waiting for a shard writer, beyond which adding blocks
+	private static final int MAX_PENDING_BATCHES = 2;
+
+	private static final String ID = MatchingHelper.Field.ID.toString().toLowerCase();
+
+	// highest score first, hits with equal scores stay in shard order
+	private static final Comparator<SolrDocument> BY_SCORE = new Comparator<SolrDocument>()
+	{
+		public int compare(SolrDocument first, SolrDocument second)
+		{
+			return Float.compare(getScore(second), getScore(first));
+		}
+	};
+
+	private final List<IndexBackend> shards;
+
+	// index into which the shards are merged, null if they are not merged
+	private final MergeableIndexBackend target;
+
+	private final List<ExecutorService> writers = new ArrayList<ExecutorService>();
+	private final List<Deque<Future<?>>> pendingBatches = new ArrayList<Deque<Future<?>>>();
+
+	public ShardedIndexBackend(List<IndexBackend> shards, MergeableIndexBackend target)
+	{
+		this.shards = shards;
+		this.target = target;
+
+		for (int i = 0; i < shards.size(); i++)
+		{
+			writers.add(Executors.newSingleThreadExecutor());
+			pendingBatches.add(new ArrayDeque<Future<?>>());
+		}
+	}
+
+	/**
+	 * partitions the documents by shard and hands each part to its shard writer
+	 * <br> the documents are written asynchronously, errors are reported by the next commit
+	 */
+	public synchronized void add(Collection<SolrInputDocument> docs) throws Exception
+	{
+		List<Collection<SolrInputDocument>> parts = new ArrayList<Collection<SolrInputDocument>>();
+
+		for (int i = 0; i < shards.size(); i++)
+		{
+			parts.add(new ArrayList<SolrInputDocument>());
+		}
+
+		for (SolrInputDocument doc : docs)
+		{
+			parts.get(getShard((String)doc.getFieldValue(ID))).add(doc);
+		}
+
+		for (int i = 0; i < shards.size(); i++)
+		{
+			if (parts.get(i).size() > 0)
+			{
+				final IndexBackend shard = shards.get(i);
+				final Collection<SolrInputDocument> part = parts.get(i);
+
+				submit(i, new Callable<Void>()
+				{
+					public Void call() throws Exception
+					{
+						shard.add(part);
+
+						return null;
+					}
+				});
+			}
+		}
+	}
+
+	public synchronized void softCommit() throws Exception
+	{
+		runOnShards(new ShardTask()
+		{
+			public void run(IndexBackend shard) throws Exception
+			{
+				shard.softCommit();
+			}
+		});
+	}
+
+	/**
+	 * waits for the pending batches and commits all shards in parallel
+	 */
+	public synchronized void commit() throws Exception
+	{
+		runOnShards(new ShardTask()
+		{
+			public void run(IndexBackend shard) throws Exception
+			{
+				shard.commit();
+			}
+		});
+	}
+
+	/**
+	 * optimizes the target, or each shard if they are not merged
+	 */
+	public synchronized void optimize() throws Exception
+	{
+		if (target != null)
+		{
+			target.optimize();
+
+			return;
+		}
+
+		runOnShards(new ShardTask()
+		{
+			public void run(IndexBackend shard) throws Exception
+			{
+				shard.optimize();
+			}
+		});
+	}
+
+	public synchronized void deleteById(List<String> ids) throws Exception
+	{
+		List<List<String>> parts = new ArrayList<List<String>>();
+
+		for (int i = 0; i < shards.size(); i++)
+		{
+			parts.add(new ArrayList<String>());
+		}
+
+		for (String id : ids)
+		{
+			parts.get(getShard(id)).add(id);
+		}
+
+		for (int i = 0; i < shards.size(); i++)
+		{
+			if (parts.get(i).size() > 0)
+			{
+				final IndexBackend shard = shards.get(i);
+				final List<String> part = parts.get(i);
+
+				submit(i, new Callable<Void>()
+				{
+					public Void call() throws Exception
+					{
+						shard.deleteById(part);
+
+						return null;
+					}
+				});
+			}
+		}
+	}
+
+	public synchronized void deleteAll() throws Exception
+	{
+		runOnShards(new ShardTask()
+		{
+			public void run(IndexBackend shard) throws Exception
+			{
+				shard.deleteAll();
+			}
+		});
+
+		if (target != null)
+		{
+			target.deleteAll();
+		}
+	}
+
+	/**
+	 * commits the shards and merges them into the target, if there is one
+	 */
+	public synchronized void merge() throws Exception
+	{
+		if (target == null)
+		{
+			return;
+		}
+
+		commit();
+
+		long start = System.currentTimeMillis();
+
+		target.addIndexes(shards);
+
+		MatchingHelper.logMessage(null, "Merged " + shards.size() + " index shards in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * queries the target, or each shard in turn, requesting the first start + rows hits of each of them
+	 * <br> without a target, the hits of the shards are merged by score, each shard scoring with its own term statistics;
+	 * sorted queries are rejected, as the sort values are not returned
+	 */
+	public SolrDocumentList query(SolrQuery query) throws Exception
+	{
+		if (target != null)
+		{
+			return target.query(query);
+		}
+
+		if (query.getSortField() != null)
+		{
+			throw new Exception("Sorted queries need the index shards to be merged (MERGE_SHARDS)");
+		}
+
+		int start = query.getStart() != null ? query.getStart() : 0;
+		int rows = query.getRows() != null ? query.getRows() : 10;
+
+		SolrQuery shardQuery = query.getCopy();
+		shardQuery.setStart(0);
+		shardQuery.setRows((int)Math.min((long)start + rows, Integer.MAX_VALUE));
+
+		// the score is requested to rank the hits, and removed again if it was not asked for
+		String fields = query.getFields();
+		boolean isScoreRequested = fields != null && Arrays.asList(fields.split("[,\\s]+")).contains(SCORE);
+
+		if (!isScoreRequested)
+		{
+			shardQuery.setFields(fields != null && fields.trim().length() > 0 ? fields + "," + SCORE : "*," + SCORE);
+		}
+
+		List<SolrDocument> hits = new ArrayList<SolrDocument>();
+		long numFound = 0;
+
+		for (IndexBackend shard : shards)
+		{
+			SolrDocumentList shardResults = shard.query(shardQuery);
+
+			numFound += shardResults.getNumFound();
+			hits.addAll(shardResults);
+		}
+
+		// stable, so the order of each shard is kept for equal scores
+		Collections.sort(hits, BY_SCORE);
+
+		SolrDocumentList results = new SolrDocumentList();
+		results.setStart(start);
+		results.setNumFound(numFound);
+
+		for (int i = start; i < hits.size() && results.size() < rows; i++)
+		{
+			SolrDocument hit = hits.get(i);
+
+			if (!isScoreRequested)
+			{
+				hit.removeFields(SCORE);
+			}
+
+			results.add(hit);
+		}
+
+		return results;
+	}
+
+	/**
+	 * returns the version of the target, or a combination of the shard versions
+	 */
+	public long getVersion() throws Exception
+	{
+		if (target != null)
+		{
+			return target.getVersion();
+		}
+
+		long version = 0;
+
+		for (IndexBackend shard : shards)
+		{
+			version = 31 * version + shard.getVersion();
+		}
+
+		return version;
+	}
+
+	/**
+	 * returns the frequencies of the target, or their sums over the shards
+	 */
+	public Map<String, Integer> getDocumentFrequencies(String field) throws Exception
+	{
+		if (target != null)
+		{
+			return target.getDocumentFrequencies(field);
+		}
+
+		Map<String, Integer> frequencies = new HashMap<String, Integer>();
+
+		for (IndexBackend shard : shards)
+		{
+			for (Map.Entry<String, Integer> entry : shard.getDocumentFrequencies(field).entrySet())
+			{
+				Integer frequency = frequencies.get(entry.getKey());
+				frequencies.put(entry.getKey(), frequency != null ? frequency + entry.getValue() : entry.getValue());
+			}
+		}
+
+		return frequencies;
+	}
+
+	public void close()
+	{
+		for (ExecutorService writer : writers)
+		{
+			writer.shutdown();
+		}
+
+		for (IndexBackend shard : shards)
+		{
+			shard.close();
+		}
+
+		if (target != null)
+		{
+			target.close();
+		}
+	}
+
+	/**
+	 * returns the score of the hit, 0 if the shard did not return it
+	 */
+	private static float getScore(SolrDocument hit)
+	{
+		Object score = hit.getFieldValue(SCORE);
+
+		return score instanceof Number ? ((Number)score).floatValue() : 0;
+	}
+
+	/**
+	 * returns the shard of the DBLP entry, String.hashCode is the same on every run
+	 */
+	private int getShard(String id)
+	{
+		return (id.hashCode() & Integer.MAX_VALUE) % shards.size();
+	}
+
+	/**
+	 * queues a task on the shard writer, waiting first for the oldest batch if too many are pending
+	 */
+	private void submit(int shard, Callable<Void> task) throws Exception
+	{
+		Deque<Future<?>> pending = pendingBatches.get(shard);
+
+		while (!pending.isEmpty() && pending.peekFirst().isDone())
+		{
+			await(pending.pollFirst());
+		}
+
+		if (pending.size() >= MAX_PENDING_BATCHES)
+		{
+			await(pending.pollFirst());
+		}
+
+		pending.addLast(writers.get(shard).submit(task));
+	}
+
+	/**
+	 * runs the task on every shard writer, after the pending batches, and waits for all of them
+	 */
+	private void runOnShards(final ShardTask task) throws Exception
+	{
+		for (int i = 0; i < shards.size(); i++)
+		{
+			final IndexBackend shard = shards.get(i);
+
+			submit(i, new Callable<Void>()
+			{
+				public Void call() throws Exception
+				{
+					task.run(shard);
+
+					return null;
+				}
+			});
+		}
+
+		for (Deque<Future<?>> pending : pendingBatches)
+		{
+			while (!pending.isEmpty())
+			{
+				await(pending.pollFirst());
+			}
+		}
+	}
+
+	/**
+	 * waits for the task and rethrows its exception
+	 */
+	private static void await(Future<?> future) throws Exception
+	{
+		try
+		{
+			future.get();
+		}
+		catch (ExecutionException ex)
+		{
+			throw ex.getCause() instanceof Exception ? (Exception)ex.getCause() : ex;
+		}
+	}
+
+	private interface ShardTask
+	{
+		void run(IndexBackend shard) throws Exception;
+	}
+}
@@ -59,6 +59,102 @@ public class Similarity
 		return 0;
 	}
 	
+	/**
+	 * computes Jaccard similarity between sorted CiteSeer and DBLP title tokens
+	 * <br> same result as for the titles, the distinct tokens are counted while merging the two lists
+	 */
+	public static double computeJaccardSimilarity(List<String> citeseerTokens, List<String> dblpTokens)
+	{
+		int nrOfCommonWords = 0;
+		int nrOfWords = 0;
+		
+		int i = 0;
+		int j = 0;
+		
+		while (i < citeseerTokens.size() || j < dblpTokens.size())
+		{
+			int comparison = compareTokens(citeseerTokens, i, dblpTokens, j);
+			String word = comparison <= 0 ? citeseerTokens.get(i) : dblpTokens.get(j);
+			
+			if (comparison == 0)
+			{
+				nrOfCommonWords++;
+			}
+			
+			nrOfWords++;
+			
+			i = skipToken(citeseerTokens, i, word);
+			j = skipToken(dblpTokens, j, word);
+		}
+		
+		return nrOfWords != 0 ? nrOfCommonWords/(double)nrOfWords : 0;
+	}
+	
+	/**
+	 * computes cosine similarity between sorted CiteSeer and DBLP title tokens
+	 * <br> same result as for the titles, word frequencies are the lengths of the runs of equal tokens
+	 */
+	public static double computeCosineSimilarity(List<String> citeseerTokens, List<String> dblpTokens)
+	{
+		int innerProduct = 0;
+		int dblpNorm = 0;
+		int citeseerNorm = 0;
+		
+		int i = 0;
+		int j = 0;
+		
+		while (i < citeseerTokens.size() || j < dblpTokens.size())
+		{
+			int comparison = compareTokens(citeseerTokens, i, dblpTokens, j);
+			String word = comparison <= 0 ? citeseerTokens.get(i) : dblpTokens.get(j);
+			
+			int citeseerFreq = skipToken(citeseerTokens, i, word) - i;
+			int dblpFreq = skipToken(dblpTokens, j, word) - j;
+			
+			innerProduct += citeseerFreq * dblpFreq;
+			citeseerNorm += citeseerFreq * citeseerFreq;
+			dblpNorm += dblpFreq * dblpFreq;
+			
+			i += citeseerFreq;
+			j += dblpFreq;
+		}
+		
+		double norms = Math.sqrt(dblpNorm) * Math.sqrt(citeseerNorm);
+		
+		return norms != 0.0 ? innerProduct / norms : 0.0;
+	}
+	
+	/**
+	 * compares the current tokens of two sorted lists, a list at its end sorts after the other one
+	 */
+	private static int compareTokens(List<String> tokens1, int i, List<String> tokens2, int j)
+	{
+		if (i == tokens1.size())
+		{
+			return 1;
+		}
+		
+		if (j == tokens2.size())
+		{
+			return -1;
+		}
+		
+		return tokens1.get(i).compareTo(tokens2.get(j));
+	}
+	
+	/**
+	 * returns the position after the run of tokens equal to the given word, starting at i
+	 */
+	private static int skipToken(List<String> tokens, int i, String word)
+	{
+		while (i < tokens.size() && tokens.get(i).equals(word))
+		{
+			i++;
+		}
+		
+		return i;
+	}
+	
 	/**
 	 * computes cosine similarity between CiteSeer and DBLP titles
 	 */
@@ -1,46 +1,32 @@
 package main;
 
-import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.stream.EventFilter;
-import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.events.StartElement;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLResolver;
 
 import main.MatchingHelper.Field;
 import model.citeseer.Document;
-import model.dblp.Article;
-import model.dblp.Author;
-import model.dblp.Book;
-import model.dblp.Dblp;
-import model.dblp.Incollection;
-import model.dblp.Inproceedings;
-import model.dblp.Mastersthesis;
-import model.dblp.Phdthesis;
-import model.dblp.Proceedings;
-import model.dblp.Publication;
-import model.dblp.Title;
-import model.dblp.Www;
 
 import org.apache.solr.client.solrj.SolrQuery;
-import org.apache.solr.client.solrj.SolrServer;
-import org.apache.solr.client.solrj.SolrServerException;
-import org.apache.solr.client.solrj.impl.HttpSolrServer;
-import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.DisMaxParams;
 
 /**
  * @author Alina Maria Ciobanu
@@ -48,324 +34,1156 @@ import org.apache.solr.common.SolrInputDocument;
 public class SolrHandler 
 {
 	//index commit batch size 
-	private static final int DOCS_LIST_SIZE = 10000;
-	//max number of docs to index
-	private static final int INDEXED_MAX_SIZE = 10000000;
+	static final int DOCS_LIST_SIZE = 10000;
 	
-	private static final String DBLP 		 = "dblp";
-	private static final String DELETE_QUERY = "*:*";
+	// appended to the Solr core url and to the Lucene index folder to name the index shards
+	static final String SHARD_SUFFIX = "_shard";
 	
-	public static int currentNumberOfHits = 0;
+	// filter queries costing at least 100 are run by Solr as post filters, only on the hits of the title query
+	private static final int POST_FILTER_COST = 200;
 	
-	private int currentNumberOfDocs = 0;
+	// limits of the JDK parser on entity expansions, DBLP has far more entity references in attribute values (0 = no limit)
+	private static final String[] ENTITY_LIMIT_PROPERTIES = {
+		"http://www.oracle.com/xml/jaxp/properties/entityExpansionLimit",
+		"http://www.oracle.com/xml/jaxp/properties/totalEntitySizeLimit",
+		"http://www.oracle.com/xml/jaxp/properties/maxGeneralEntitySizeLimit"
+	};
+	
+	private long docsSinceSoftCommit = 0;
 
-	private SolrServer server;
+	// Solr server or local Lucene index, possibly sharded
+	private IndexBackend backend;
+	
+	// progress of the current indexing run, when checkpointing is enabled
+	private IndexingCheckpoint checkpoint;
+	
+	// previously indexed keys, in delta indexing mode
+	private DeltaIndexState deltaState;
+	
+	// set when a batch could not be indexed or committed, the indexing run is then stopped
+	private volatile boolean indexingFailed = false;
+	
+	// titles of entries that are not indexed, null if all titles are indexed
+	private final Pattern excludedTitles;
+	
+	// stored fields returned for the candidate DBLP entries
+	private final String candidateFields;
+	
+	// true if title similarities are computed by the titlesim function of the Solr server
+	private final boolean serverSideSimilarity;
+	
+	// responses of previous runs, null if they are not cached
+	private QueryCache queryCache;
+	
+	// responses of this run, null if they are not cached
+	private CandidateCache candidateCache;
+	
+	// version of the searched index, read on the first cached query
+	private Long indexVersion;
+	
+	// fingerprints of the indexed normalized titles, null if exact title matches are not looked up first
+	private TitleFingerprints titleFingerprints;
+	
+	// CiteSeer records looked up by title fingerprint, and those matched without the title query
+	private final AtomicLong exactLookups = new AtomicLong();
+	private final AtomicLong exactMatches = new AtomicLong();
+	
+	// CiteSeer records looked up by author block after the title queries, and those matched by it
+	private final AtomicLong blockLookups = new AtomicLong();
+	private final AtomicLong blockMatches = new AtomicLong();
+	
+	// CiteSeer records that reached each stage of the cascade query mode, and those matched by it
+	private final AtomicLongArray stageQueries = new AtomicLongArray(MatchingHelper.CascadeStage.values().length);
+	private final AtomicLongArray stageMatches = new AtomicLongArray(MatchingHelper.CascadeStage.values().length);
 
-	public SolrHandler()
+	public SolrHandler() throws IOException
+	{
+		if (Config.INDEX_SHARDS > 1)
+		{
+			List<IndexBackend> shards = new ArrayList<IndexBackend>();
+			
+			for (int i = 0; i < Config.INDEX_SHARDS; i++)
+			{
+				shards.add(createBackend(Config.BASE_URL + SHARD_SUFFIX + i, Config.INDEX_PATH + SHARD_SUFFIX + i));
+			}
+			
+			backend = new ShardedIndexBackend(shards, Config.MERGE_SHARDS ? createBackend(Config.BASE_URL, Config.INDEX_PATH) : null);
+		}
+		else
+		{
+			backend = createBackend(Config.BASE_URL, Config.INDEX_PATH);
+		}
+		
+		excludedTitles = "".equals(Config.EXCLUDE_TITLES) ? null : Pattern.compile(Config.EXCLUDE_TITLES);
+		
+		candidateFields = getCandidateFields();
+		
+		// the hits of unmerged shards are merged by score, not by the similarity they would be sorted by
+		serverSideSimilarity = Config.SERVER_SIDE_SIMILARITY && Config.MATCH_TITLE && !MatchingHelper.Backend.LUCENE.toString().equals(Config.BACKEND)
+				&& (Config.INDEX_SHARDS <= 1 || Config.MERGE_SHARDS);
+		
+		if (Config.SERVER_SIDE_SIMILARITY && !serverSideSimilarity)
+		{
+			MatchingHelper.logMessage(null, "Server-side similarity needs the Solr backend, MATCH_TITLE and merged shards, similarities are computed locally");
+		}
+		
+		if (!"".equals(Config.QUERY_CACHE_PATH))
+		{
+			queryCache = new QueryCache(Config.QUERY_CACHE_PATH, Config.QUERY_CACHE_SIZE * 1024L * 1024L);
+		}
+		
+		if (Config.CANDIDATE_CACHE_SIZE > 0)
+		{
+			candidateCache = new CandidateCache(Config.CANDIDATE_CACHE_SIZE);
+		}
+	}
+	
+	/**
+	 * returns the fields needed by the enabled matching features, and by the merged files if they are written
+	 */
+	private static String getCandidateFields()
+	{
+		Set<Field> fields = new TreeSet<Field>(Arrays.asList(Field.ID, Field.TITLE));
+		
+		if (Config.MATCH_TITLE)
+		{
+			fields.addAll(Arrays.asList(Field.TITLE_TOKENS, Field.TITLE_TOKEN_COUNT));
+		}
+		
+		if (Config.MATCH_AUTHORS)
+		{
+			fields.addAll(Arrays.asList(Field.AUTHOR_KEYS, Field.AUTHOR));
+		}
+		
+		if (Config.MATCH_PAGE_COUNT)
+		{
+			fields.add(Field.PAGES);
+		}
+		
+		if (Config.MATCH_VENUE)
+		{
+			fields.add(Field.VENUE);
+		}
+		
+		if (Config.MATCH_VENUE && Config.NORMALIZE_VENUE)
+		{
+			fields.add(Field.VENUE_KEY);
+		}
+		
+		if (Config.WRITE_MERGED_FILES)
+		{
+			fields.addAll(Arrays.asList(Field.VENUE, Field.YEAR, Field.AUTHOR));
+		}
+		
+		StringBuilder fieldList = new StringBuilder();
+		
+		for (Field field : fields)
+		{
+			if (fieldList.length() > 0)
+			{
+				fieldList.append(',');
+			}
+			
+			fieldList.append(field.toString().toLowerCase());
+		}
+		
+		return fieldList.toString();
+	}
+	
+	/**
+	 * creates the configured backend, for the Solr core at the given url or the Lucene index in the given folder
+	 */
+	private static MergeableIndexBackend createBackend(String baseUrl, String indexPath) throws IOException
+	{
+		if (MatchingHelper.Backend.LUCENE.toString().equals(Config.BACKEND))
+		{
+			return new LuceneIndexBackend(indexPath);
+		}
+		
+		return new SolrIndexBackend(baseUrl);
+	}
+	
+	/**
+	 * loads the document frequencies of the queried title field, if the query mode ranks title tokens by rarity
+	 * <br> queries are built from all tokens if they cannot be loaded
+	 */
+	public void loadTermStatistics()
+	{
+		boolean isPrefixMode = MatchingHelper.QueryMode.PREFIX.toString().equals(Config.QUERY_MODE);
+		
+		if (!isPrefixMode && Config.RARE_TOKENS <= 0)
+		{
+			return;
+		}
+		
+		// prefix queries search the title field, which keeps the stopwords
+		String field = Config.REMOVE_STOPWORDS && !isPrefixMode ? Field.NSW_TITLE.toString().toLowerCase() : Field.TITLE.toString().toLowerCase();
+		
+		try
+		{
+			MatchingHelper.termStatistics = TermStatistics.load(backend, field, Config.TERM_STATS_PATH);
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while loading term statistics");
+		}
+	}
+	
+	/**
+	 * loads the fingerprints of the indexed titles, if exact title matches are looked up first
+	 * <br> records are then all matched by the title query if they cannot be loaded
+	 */
+	public void loadTitleFingerprints()
+	{
+		if (!Config.EXACT_MATCH)
+		{
+			return;
+		}
+		
+		try
+		{
+			titleFingerprints = TitleFingerprints.load(backend, Config.TITLE_FINGERPRINTS_PATH);
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while loading title fingerprints");
+		}
+	}
+	
+	/**
+	 * releases the index backend, pending updates that were not committed are lost
+	 */
+	public void close()
 	{
-		server = new HttpSolrServer(Config.BASE_URL);
+		if (titleFingerprints != null)
+		{
+			MatchingHelper.logMessage(null, "Exact title matches: " + exactMatches + " of " + exactLookups + " records looked up");
+		}
+		
+		if (Config.AUTHOR_BLOCKING)
+		{
+			MatchingHelper.logMessage(null, "Author block matches: " + blockMatches + " of " + blockLookups + " records looked up");
+		}
+		
+		if (MatchingHelper.QueryMode.CASCADE.toString().equals(Config.QUERY_MODE))
+		{
+			StringBuilder stages = new StringBuilder("Cascade stages (records queried / matched):");
+			
+			for (MatchingHelper.CascadeStage stage : MatchingHelper.CascadeStage.values())
+			{
+				stages.append(" " + stage.toString().toLowerCase() + " " + stageQueries.get(stage.ordinal()) + " / " + stageMatches.get(stage.ordinal()));
+			}
+			
+			MatchingHelper.logMessage(null, stages.toString());
+		}
+		
+		if (candidateCache != null)
+		{
+			candidateCache.close();
+		}
+		
+		if (queryCache != null)
+		{
+			queryCache.close();
+		}
+		
+		backend.close();
 	}
 
 	/**
-	 * reads DBLP XML file and indexes each entry
+	 * reads DBLP XML file (or its compiled snapshot) and indexes each entry
 	 * <br> indexed fields are: key, title, year, venue, authors
 	 */
 	public void indexDblp(String filePath) 
 	{
+		if (!"".equals(Config.CHECKPOINT_PATH))
+		{
+			checkpoint = new IndexingCheckpoint(Config.CHECKPOINT_PATH, filePath, Config.PARSE_RANGES, MatchingHelper.getIndexedElementsList().toString());
+			
+			if (Config.RESUME_INDEX)
+			{
+				checkpoint.load();
+			}
+		}
+		
+		if (Config.DELTA_INDEX)
+		{
+			deltaState = new DeltaIndexState(Config.DELTA_STATE_PATH);
+			deltaState.load();
+		}
+		
+		if (Config.INDEX_THREADS > 1 || Config.PARSE_RANGES > 1)
+		{
+			try
+			{
+				new DblpIndexingPipeline(this, Config.INDEX_THREADS, Config.PARSE_RANGES, Config.INDEX_QUEUE_SIZE).run(filePath);
+			}
+			catch (Exception ex)
+			{
+				indexingFailed(ex, "ERROR while indexing DBLP file");
+			}
+			
+			finishIndexing();
+			
+			return;
+		}
+		
 		Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
 		
 		try 
 		{
-			JAXBContext jaxbContext = JAXBContext.newInstance(Dblp.class);
-			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+			DblpRecordSource recordReader = openRecordSource(filePath);
+			DblpRecord record = new DblpRecord();
+			
+			recordReader.skip(getResumeOrdinal(0));
+
+			while (!indexingFailed && recordReader.next(record)) 
+			{
+				System.out.println("currentNumberOfDocs : " + recordReader.getOrdinal());
+				
+				SolrInputDocument solrDocument = createDocument(record);
+				
+				if (solrDocument != null)
+				{
+					System.out.println(record.getTitle());
+					docs.add(solrDocument);
+				}
+				
+				if (docs.size() == DOCS_LIST_SIZE)
+				{
+					sendBatch(docs, recordReader.getOrdinal());
+					docs.clear();
+				}
+			}
+			
+			recordReader.close();
+			
+			if (!indexingFailed)
+			{
+				sendBatch(docs, recordReader.getOrdinal());
+			}
+		} 
+		catch (Exception ex) 
+		{
+			indexingFailed(ex, "ERROR while parsing DBLP file");
+			ex.printStackTrace();
+		}  
+		
+		finishIndexing();
+	}
+	
+	/**
+	 * opens a compiled DBLP snapshot, or a streaming reader over the DBLP XML file
+	 */
+	static DblpRecordSource openRecordSource(String filePath) throws Exception
+	{
+		if (DblpSnapshot.isSnapshot(filePath))
+		{
+			return new DblpSnapshot(filePath).records(MatchingHelper.getIndexedElementsList());
+		}
+		
+		return createRecordReader(DblpInput.open(filePath));
+	}
+	
+	/**
+	 * creates a streaming DBLP reader over the given input, for the indexed types of publications
+	 */
+	static DblpRecordReader createRecordReader(InputStream in) throws Exception
+	{
+		return createRecordReader(in, MatchingHelper.getIndexedElementsList());
+	}
+	
+	/**
+	 * creates a streaming DBLP reader over the given input, for the given types of publications
+	 * <br> dblp.dtd is neither loaded nor validated, the parser reads the declarations of its character entities from {@link DblpEntities} instead
+	 */
+	static DblpRecordReader createRecordReader(InputStream in, List<String> recordTypes) throws Exception
+	{
+		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.TRUE);
+		inputFactory.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+		inputFactory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.FALSE);
+		inputFactory.setXMLResolver(new XMLResolver()
+		{
+			@Override
+			public Object resolveEntity(String publicId, String systemId, String baseUri, String namespace)
+			{
+				return DblpEntities.openDeclarations();
+			}
+		});
+		
+		for (String property : ENTITY_LIMIT_PROPERTIES)
+		{
+			if (inputFactory.isPropertySupported(property))
+			{
+				inputFactory.setProperty(property, "0");
+			}
+		}
+		
+		return new DblpRecordReader(inputFactory.createXMLStreamReader(new InputStreamReader(in, Charset.forName("UTF8"))), recordTypes);
+	}
+	
+	/**
+	 * returns true if the DBLP entry should be indexed
+	 * <br> entries of excluded types are already skipped by the reader
+	 */
+	boolean isIndexable(DblpRecord record)
+	{
+		String title = record.getTitle();
+		
+		// entries without a title or with a title matching EXCLUDE_TITLES (e.g. home pages) are skipped
+		return title != null && (excludedTitles == null || !excludedTitles.matcher(title).matches());
+	}
+	
+	/**
+	 * returns the Solr document for the DBLP entry, or null if the entry is not indexed
+	 * or, in delta indexing mode, has not changed since the previous run
+	 */
+	SolrInputDocument createDocument(DblpRecord record)
+	{
+		if (!isIndexable(record))
+		{
+			return null;
+		}
+		
+		if (deltaState != null && !deltaState.isNewOrChanged(record))
+		{
+			return null;
+		}
+		
+		return creatSolrInputDocument(record);
+	}
+	
+	/**
+	 * indexes a batch of the single input stream, then marks the records before the given ordinal as added
+	 * <br> the run is stopped if the batch cannot be indexed
+	 */
+	private void sendBatch(Collection<SolrInputDocument> docs, long ordinal)
+	{
+		try
+		{
+			if (docs.size() > 0)
+			{
+				indexDocuments(docs);
+			}
+			
+			recordsAdded(0, ordinal);
+			batchAdded(docs.size());
+		}
+		catch (Exception ex)
+		{
+			indexingFailed(ex, "ERROR while indexing DBLP files");
+		}
+	}
+	
+	/**
+	 * indexes all input documents
+	 * <br> documents become visible through commitWithin, periodic soft commits or the final hard commit
+	 */
+	void indexDocuments(Collection<SolrInputDocument> docs) throws Exception
+	{
+		backend.add(docs);
+		
+		docsSinceSoftCommit += docs.size();
+		
+		if (Config.SOFT_COMMIT_SIZE > 0 && docsSinceSoftCommit >= Config.SOFT_COMMIT_SIZE)
+		{
+			backend.softCommit();
+			docsSinceSoftCommit = 0;
+		}
+	}
+	
+	/**
+	 * stops the run after the DBLP file could not be read to its end, or a batch could not be indexed or committed
+	 * <br> the index is not committed and the checkpoint is not saved, a resumed run starts again from the last saved checkpoint;
+	 * in delta indexing mode, entries that were not read are not deleted and the delta state is not saved
+	 */
+	void indexingFailed(Exception ex, String message)
+	{
+		MatchingHelper.logMessage(ex, message + ", indexing stopped");
+		
+		indexingFailed = true;
+	}
+	
+	boolean hasIndexingFailed()
+	{
+		return indexingFailed;
+	}
+	
+	/**
+	 * returns the number of leading records of the input stream committed by a previous run
+	 */
+	long getResumeOrdinal(int stream)
+	{
+		return checkpoint != null ? checkpoint.getResumeOrdinal(stream) : 0;
+	}
+	
+	/**
+	 * marks a record of the input stream as added to the index (or deliberately not indexed)
+	 */
+	void recordAdded(int stream, long ordinal)
+	{
+		if (checkpoint != null)
+		{
+			checkpoint.completed(stream, ordinal);
+		}
+	}
+	
+	/**
+	 * marks all records of the input stream before the given ordinal as added to the index
+	 */
+	void recordsAdded(int stream, long ordinal)
+	{
+		if (checkpoint != null)
+		{
+			checkpoint.completedUpTo(stream, ordinal);
+		}
+	}
+	
+	/**
+	 * hard-commits and saves the checkpoint every CHECKPOINT_INTERVAL documents
+	 * <br> the records of the batch must have been marked as added before; the checkpoint is not saved if the commit fails
+	 */
+	void batchAdded(int numberOfDocuments) throws Exception
+	{
+		if (checkpoint != null && checkpoint.added(numberOfDocuments))
+		{
+			hardCommit();
+			checkpoint.save();
+		}
+	}
+	
+	/**
+	 * waits for pending asynchronous updates and commits them, fails if any of them could not be indexed
+	 */
+	private void hardCommit() throws Exception
+	{
+		backend.commit();
+	}
+	
+	/**
+	 * waits for pending updates, then issues the single hard commit, the merge of the shards and the optional optimize
+	 */
+	void finishIndexing()
+	{
+		if (indexingFailed)
+		{
+			MatchingHelper.logMessage(null, "DBLP index not committed" + (checkpoint != null ? ", indexing can be resumed from the last saved checkpoint" : ""));
+			
+			return;
+		}
+		
+		try
+		{
+			if (deltaState != null)
+			{
+				deleteDisappearedDocuments();
+			}
+			
+			hardCommit();
+			
+			if (checkpoint != null)
+			{
+				checkpoint.save();
+			}
+			
+			if (deltaState != null)
+			{
+				deltaState.save();
+			}
+			
+			if (backend instanceof ShardedIndexBackend)
+			{
+				((ShardedIndexBackend)backend).merge();
+			}
+			
+			if (Config.OPTIMIZE_INDEX)
+			{
+				backend.optimize();
+			}
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while committing DBLP index");
+		}
+	}
 
-			XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+	/**
+	 * deletes the documents whose keys are no longer in the DBLP dump
+	 * <br> skipped when the run was resumed, since the records before the checkpoint were not read
+	 */
+	private void deleteDisappearedDocuments() throws Exception
+	{
+		if (checkpoint != null && checkpoint.isResumed())
+		{
+			MatchingHelper.logMessage(null, "Resumed delta indexing run, removed DBLP records are not deleted");
+			deltaState.keepUnseenKeys();
+			return;
+		}
+		
+		List<String> keys = deltaState.getDisappearedKeys();
+		
+		for (int i = 0; i < keys.size(); i += DOCS_LIST_SIZE)
+		{
+			backend.deleteById(keys.subList(i, Math.min(i + DOCS_LIST_SIZE, keys.size())));
+		}
+	}
+	
+	/**
+	 * deletes all previously indexed documents, not used through this package
+	 */
+	public void deleteAllIndexedPublications() 
+	{
+		try
+		{
+			backend.deleteAll();
+			backend.commit();
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while deleting all previously indexed publications");
+		}
+	}
 
-			InputStream in = new FileInputStream(filePath);
-			XMLEventReader eventReader = inputFactory.createXMLEventReader(new InputStreamReader(in, Charset.forName("UTF8")));
+	/**
+	 * creates Solr document from DBLP entry
+	 * <br>indexed fields are: key, title (with and without stopwords), year, venue, authors, page count
+	 * <br>and the precomputed matching features: title tokens and their count, authors' last names, venue key
+	 */
+	SolrInputDocument creatSolrInputDocument(DblpRecord record) 
+	{
+		SolrInputDocument doc = new SolrInputDocument();
 
-			EventFilter filter = new EventFilter() 
+		String key = record.getKey();
+		
+		try
+		{
+			doc.addField(Field.ID.toString().toLowerCase(), key);
+			
+			String title = record.getTitle();
+			
+			if (title == null)
+			{
+				MatchingHelper.logMessage(null, "Paper '" + key + "' does not have a title");
+			}
+			else
 			{
-				public boolean accept(XMLEvent event) 
+				doc.addField(Field.TITLE.toString().toLowerCase(), title);
+				
+				List<String> titleTokens = MatchingHelper.getTitleTokens(title);
+				
+				for (String titleToken : titleTokens)
 				{
-					if (event.isStartElement())
-					{
-						if (((StartElement)event).getName().getLocalPart().equals(DBLP))
-						{
-							return false;
-						}
-					}
-					return event.isStartElement();
+					doc.addField(Field.TITLE_TOKENS.toString().toLowerCase(), titleToken);
 				}
-			};
-
-			XMLEventReader filteredEventReader = inputFactory.createFilteredReader(eventReader, filter);
-			XMLEvent event;
+				
+				doc.addField(Field.TITLE_TOKEN_COUNT.toString().toLowerCase(), MatchingHelper.countDistinctTokens(titleTokens));
+				
+				long titleFingerprint = MatchingHelper.getTitleFingerprint(MatchingHelper.normalizeTitle(title));
+				
+				if (titleFingerprint != 0)
+				{
+					doc.addField(Field.TITLE_FINGERPRINT.toString().toLowerCase(), MatchingHelper.formatTitleFingerprint(titleFingerprint));
+				}
+			}
+			
+			doc.addField(Field.NSW_TITLE.toString().toLowerCase(), record.getNormalizedTitle());
+			doc.addField(Field.YEAR.toString().toLowerCase(), record.getYear());
+			
+			if (record.getVenue() != null)
+			{
+				doc.addField(Field.VENUE.toString().toLowerCase(), record.getVenue());
+				doc.addField(Field.VENUE_KEY.toString().toLowerCase(), MatchingHelper.getVenueKey(record.getVenue()));
+			}
+			
+			doc.addField(Field.PAGES.toString().toLowerCase(), record.getNumberOfPages());
+	
+			for (String author : record.getAuthors())
+			{
+				doc.addField(Field.AUTHOR.toString().toLowerCase(), author);
+			}
+			
+			for (String authorKey : MatchingHelper.getAuthorKeys(record.getAuthors()))
+			{
+				doc.addField(Field.AUTHOR_KEYS.toString().toLowerCase(), authorKey);
+			}
+			
+			String authorBlock = MatchingHelper.getAuthorBlock(record.getAuthors());
+			
+			if (authorBlock != null)
+			{
+				doc.addField(Field.AUTHOR_BLOCK.toString().toLowerCase(), authorBlock);
+			}
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while creating Solr document from DBLP entry '" + key + "'");
+		}
+		
+		return doc;
+	}
 
-			while ((event = filteredEventReader.peek()) != null) 
+	/**
+	 * creates Solr query and returns the best match among the hits from DBLP indexed files, with the number of hits
+	 * <br> hits are read page by page, only the fields needed for matching, up to MAX_HITS hits (0 = all hits)
+	 * <br> safe to call from several threads
+	 */
+	public MatchResult getMatchingDocuments(Document record, double threshold) 
+	{
+		MatchResult matchResult = new MatchResult();
+		matchResult.record = record;
+		
+		// features of the CiteSeer record, compared to those precomputed for the DBLP entries
+		List<String> citeseerAuthorKeys = null;
+		String citeseerVenueKey = null;
+		
+		if (Config.MATCH_AUTHORS && record.getAuthors() != null)
+		{
+			citeseerAuthorKeys = MatchingHelper.getAuthorKeys(Arrays.asList(record.getAuthors().split(",\\s*")));
+		}
+		
+		if (Config.MATCH_VENUE && Config.NORMALIZE_VENUE && record.getVenue() != null)
+		{
+			citeseerVenueKey = MatchingHelper.getVenueKey(record.getVenue());
+		}
+		
+		if (titleFingerprints != null && record.getTitle() != null)
+		{
+			SolrDocument exactMatch = getExactMatch(record, threshold, citeseerAuthorKeys, citeseerVenueKey, matchResult);
+			
+			if (exactMatch != null)
+			{
+				matchResult.bestMatch = exactMatch;
+				
+				return matchResult;
+			}
+		}
+		
+		SolrDocument bestMatch = null;
+		
+		if (MatchingHelper.QueryMode.CASCADE.toString().equals(Config.QUERY_MODE))
+		{
+			bestMatch = getCascadeMatch(record, threshold, citeseerAuthorKeys, citeseerVenueKey, matchResult);
+		}
+		else if (MatchingHelper.QueryMode.MIN_MATCH.toString().equals(Config.QUERY_MODE))
+		{
+			String titleQuery = MatchingHelper.createTokenTitleQuery(record.getTitle());
+			
+			if (titleQuery.length() > 0)
 			{
-				if (event.isStartElement())
-				{
-					String startElementName = ((StartElement)event).getName().getLocalPart();
-
-					if	(MatchingHelper.elementsList.contains(startElementName))
-					{
-						Publication p = (Publication)unmarshaller.unmarshal(eventReader);
-						
-						System.out.println("currentNumberOfDocs : "+currentNumberOfDocs);
-						if (currentNumberOfDocs++ > INDEXED_MAX_SIZE)
-						{
-							System.out.println("currentNumberOfDocs : "+currentNumberOfDocs);
-							server.shutdown();
-							
-							server = new HttpSolrServer(Config.BASE_URL);
-							
-							currentNumberOfDocs = 0;
-						}
-						else if (p.getTitle() != null)
-						{
-							//skip Home Page
-							if (p.getTitle().getValue() != "Home Page")
-								{
-									System.out.println(p.getTitle().getValue());
-									SolrInputDocument solrDocument = creatSolrInputDocument(p);
-									docs.add(solrDocument);
-								}
-						}
-					}
-				}
-				else
-				{
-					eventReader.next();
-				}
+				// titles sharing too few tokens to reach the threshold are not returned by the index
+				SolrQuery query = createCandidateQuery(record, titleQuery);
+				query.set(IndexBackend.DEF_TYPE, IndexBackend.EDISMAX);
+				query.set(DisMaxParams.QF, Field.TITLE.toString().toLowerCase());
+				query.set(DisMaxParams.MM, MatchingHelper.getMinimumShouldMatch(record.getTitle(), threshold));
 				
-				if (docs.size() == DOCS_LIST_SIZE)
-				{
-					indexDocuments(docs);
-					docs.clear();
-				}
+				bestMatch = getBestMatch(record, query, Config.MAX_HITS, threshold, citeseerAuthorKeys, citeseerVenueKey, matchResult);
 			}
+		}
+		else
+		{
+			String titleQuery = MatchingHelper.QueryMode.PREFIX.toString().equals(Config.QUERY_MODE) ? 
+					MatchingHelper.createPrefixTitleQuery(record.getTitle(), threshold) : MatchingHelper.createTitleQuery(record.getTitle());
 			
-			if (docs.size() > 0)
+			if (titleQuery.length() > 0)
 			{
-				indexDocuments(docs);
+				bestMatch = getBestMatch(record, createCandidateQuery(record, titleQuery), Config.MAX_HITS, threshold, citeseerAuthorKeys, citeseerVenueKey, matchResult);
 			}
-		} 
-		catch (Exception ex) 
+		}
+		
+		// garbled titles find no candidate, the entries of the same authors around the same year are compared instead
+		if (bestMatch == null && Config.AUTHOR_BLOCKING)
 		{
-			MatchingHelper.logMessage(ex, "ERROR while parsing DBLP file");
-			ex.printStackTrace();
-		}  
+			bestMatch = getAuthorBlockMatch(record, citeseerAuthorKeys, citeseerVenueKey, matchResult);
+		}
+		
+		matchResult.bestMatch = bestMatch;
+		
+		return matchResult;
 	}
 	
 	/**
-	 * indexes all input documents
+	 * returns the most similar entry with the same set of author last names, published within YEAR_WINDOW years of the paper,
+	 * whose title similarity reaches AUTHOR_BLOCKING_THRESHOLD; null if there is none or the paper lacks authors or year
+	 * <br> the entries are found by the author block indexed with them, at most MAX_HITS of them are compared
 	 */
-	private void indexDocuments(Collection<SolrInputDocument> docs) 
+	private SolrDocument getAuthorBlockMatch(Document record, List<String> citeseerAuthorKeys, String citeseerVenueKey, MatchResult matchResult)
 	{
-		try
-		{
-			server.add(docs);
-			server.optimize();
-			server.commit();
-		}
-		catch (Exception ex)
+		String authorBlock = record.getAuthors() != null ? MatchingHelper.getAuthorBlock(Arrays.asList(record.getAuthors().split(",\\s*"))) : null;
+		String yearFilterQuery = MatchingHelper.createYearFilterQuery(record.getYear());
+		
+		if (authorBlock == null || yearFilterQuery == null)
 		{
-			MatchingHelper.logMessage(ex, "ERROR while indexing DBLP files");
+			return null;
 		}
-	}
-
-	/**
-	 * deletes all previously indexed documents, not used through this package
-	 */
-	public void deleteAllIndexedPublications() 
-	{
-		try
+		
+		blockLookups.incrementAndGet();
+		
+		SolrQuery query = createCandidateQuery(record, Field.AUTHOR_BLOCK.toString().toLowerCase() + ":" + ClientUtils.escapeQueryChars(authorBlock));
+		
+		if (!Config.MATCH_YEAR)
 		{
-			server.deleteByQuery(DELETE_QUERY);
-			server.commit();
+			query.addFilterQuery(yearFilterQuery);
 		}
-		catch (Exception ex)
+		
+		SolrDocument bestMatch = getBestMatch(record, query, Config.MAX_HITS, Config.AUTHOR_BLOCKING_THRESHOLD, citeseerAuthorKeys, citeseerVenueKey, matchResult);
+		
+		if (bestMatch != null)
 		{
-			MatchingHelper.logMessage(ex, "ERROR while deleting all previously indexed publications");
+			blockMatches.incrementAndGet();
 		}
+		
+		return bestMatch;
 	}
-
+	
 	/**
-	 * creates Solr document from DBLP entry
-	 * <br>indexed fields are: key, title (with and without stopwords), year, venue, authors, page count
+	 * queries the stages of the cascade in turn, until one of them finds a match
+	 * <br> stages whose query is empty or the same as the previous one are skipped; the relaxed stage compares
+	 * at most CASCADE_MAX_HITS hits, the best-ranked ones
 	 */
-	private SolrInputDocument creatSolrInputDocument(Publication publication) 
+	private SolrDocument getCascadeMatch(Document record, double threshold, List<String> citeseerAuthorKeys, String citeseerVenueKey, MatchResult matchResult)
 	{
-		SolrInputDocument doc = new SolrInputDocument();
-
-		String key = "";
+		String previousQuery = "";
 		
-		try
+		for (MatchingHelper.CascadeStage stage : MatchingHelper.CascadeStage.values())
 		{
-			if (publication instanceof Article)
-			{
-				key = ((Article) publication).getKey();
-			}
-			else if (publication instanceof Book)
-			{
-				key = ((Book) publication).getKey();
-			}
-			else if (publication instanceof Incollection)
-			{
-				key = ((Incollection) publication).getKey();
-			}
-			else if (publication instanceof Inproceedings)
-			{
-				key = ((Inproceedings) publication).getKey();
-			}
-			else if (publication instanceof Mastersthesis)
-			{
-				key = ((Mastersthesis) publication).getKey();
-			}
-			else if (publication instanceof Phdthesis)
-			{
-				key = ((Phdthesis) publication).getKey();
-			}
-			else if (publication instanceof Proceedings)
-			{
-				key = ((Proceedings) publication).getKey();
-			}
-			else if (publication instanceof Www)
+			String titleQuery = MatchingHelper.createTitleQuery(record.getTitle(), stage);
+			
+			if (titleQuery.length() == 0 || titleQuery.equals(previousQuery))
 			{
-				key = ((Www) publication).getKey();
+				continue;
 			}
 			
-			doc.addField(Field.ID.toString().toLowerCase(), key);
+			previousQuery = titleQuery;
 			
-			Title title = publication.getTitle();
+			int maxHits = Config.MAX_HITS;
 			
-			if (title == null)
-			{
-				MatchingHelper.logMessage(null, "Paper '" + key + "' does not have a title");
-			}
-			else
+			if (MatchingHelper.CascadeStage.RELAXED.equals(stage))
 			{
-				doc.addField(Field.TITLE.toString().toLowerCase(), title.getValue());
+				maxHits = Config.MAX_HITS > 0 ? Math.min(Config.MAX_HITS, Config.CASCADE_MAX_HITS) : Config.CASCADE_MAX_HITS;
 			}
 			
-			doc.addField(Field.NSW_TITLE.toString().toLowerCase(), MatchingHelper.removeStopWordsAndPunctuationFromTitle(publication.getTitle().getValue()));
-			doc.addField(Field.YEAR.toString().toLowerCase(), publication.getYear());
+			matchResult.stage = stage;
+			stageQueries.incrementAndGet(stage.ordinal());
 			
-			if (publication instanceof Inproceedings || publication instanceof Proceedings || publication instanceof Incollection)
-			{
-				doc.addField(Field.VENUE.toString().toLowerCase(), publication.getBooktitle());
-			}
-			else if (publication instanceof Article)
-			{
-				doc.addField(Field.VENUE.toString().toLowerCase(), publication.getJournal());
-			}
+			SolrDocument bestMatch = getBestMatch(record, createCandidateQuery(record, titleQuery), maxHits, threshold, citeseerAuthorKeys, citeseerVenueKey, matchResult);
 			
-			doc.addField(Field.PAGES.toString().toLowerCase(), MatchingHelper.getNumberOfPages(publication.getPages()));
-	
-			for (Author author : publication.getAuthor())
+			if (bestMatch != null)
 			{
-				doc.addField(Field.AUTHOR.toString().toLowerCase(), author.getValue());
+				stageMatches.incrementAndGet(stage.ordinal());
+				
+				return bestMatch;
 			}
 		}
-		catch (Exception ex)
-		{
-			MatchingHelper.logMessage(ex, "ERROR while creating Solr document from DBLP entry '" + key + "'");
-		}
 		
-		return doc;
+		return null;
 	}
-
+	
 	/**
-	 * creates Solr query and returns all hits from DBLP indexed files 
+	 * returns the most similar hit of the candidate query that passes the enabled matching features, null if there is none
+	 * <br> hits are read page by page, up to maxHits hits (0 = all hits), and added to the number of hits of the result
 	 */
-	public SolrDocument getMatchingDocuments(Document record, double threshold) 
+	private SolrDocument getBestMatch(Document record, SolrQuery query, int maxHits, double threshold, List<String> citeseerAuthorKeys, String citeseerVenueKey, MatchResult matchResult)
 	{
 		SolrDocument bestMatch = null;
 		double highestJaccardSimilarity = 0;
 		
-		String titleQuery = MatchingHelper.createTitleQuery(record.getTitle());
-		
-		if (titleQuery.length() == 0)
+		if (maxHits <= 0)
 		{
-			return bestMatch;
+			maxHits = Integer.MAX_VALUE;
 		}
 		
-		SolrQuery query = new SolrQuery();
-		query.setRows(Integer.MAX_VALUE);
-		query.setQuery(titleQuery);
-		
-		SolrDocumentList results = new SolrDocumentList();
-		
-		try
+		// Solr keeps the hits above the threshold and returns the most similar ones, which are checked again here
+		if (serverSideSimilarity)
 		{
-			QueryResponse rsp = server.query(query);
-			results.addAll(rsp.getResults());
-
-			currentNumberOfHits = results.size();
-		}
-		catch (SolrServerException ex)
-		{
-			MatchingHelper.logMessage(ex, "ERROR while getting response from Solr server");
-			System.exit(1);
+			String similarityFunction = MatchingHelper.createSimilarityFunction(record.getTitle());
+			
+			query.addFilterQuery("{!frange l=" + threshold + " cache=false cost=" + POST_FILTER_COST + "}" + similarityFunction);
+			query.addSortField(similarityFunction, SolrQuery.ORDER.desc);
+			
+			maxHits = Math.min(maxHits, Config.SERVER_SIDE_HITS);
 		}
 		
+		long numberOfHits = 0;
+		
 		try
 		{
-			for (SolrDocument result : results)
+			List<String> citeseerTitleTokens = MatchingHelper.getTitleTokens(record.getTitle());
+			int citeseerTokenCount = MatchingHelper.countDistinctTokens(citeseerTitleTokens);
+			
+			boolean isCosine = MatchingHelper.Similarity.COSINE.toString().equals(Config.SIMILARITY.toUpperCase());
+			
+			// a further page is requested only if the previous one was full and more hits are allowed
+			int start = 0;
+			SolrDocumentList results;
+			
+			do
 			{
-				if (result.getFieldValue(Field.TITLE.toString().toLowerCase()) instanceof String)
+				query.setStart(start);
+				query.setRows(Math.min(Config.HITS_PAGE_SIZE, maxHits - start));
+				
+				results = queryIndex(query);
+				
+				numberOfHits = results.getNumFound();
+				start += results.size();
+				
+				for (SolrDocument result : results)
 				{
-					double similarity = 1.0;
-										
-					if (Config.MATCH_TITLE)
+					if (result.getFieldValue(Field.TITLE.toString().toLowerCase()) instanceof String)
 					{
-						if (MatchingHelper.Similarity.COSINE.toString().equals(Config.SIMILARITY.toUpperCase()))
-						{
-							similarity = Similarity.computeCosineSimilarity(record.getTitle(), (String)result.getFieldValue(Field.TITLE.toString().toLowerCase()));
-						}
-						else
+						double similarity = 1.0;
+										
+						if (Config.MATCH_TITLE)
 						{
-							similarity = Similarity.computeJaccardSimilarity(record.getTitle(), (String)result.getFieldValue(Field.TITLE.toString().toLowerCase()));
+							similarity = computeTitleSimilarity(record.getTitle(), citeseerTitleTokens, citeseerTokenCount, result, threshold, isCosine);
+						
+							if (similarity < threshold)
+							{
+								continue;
+							}
 						}
 						
-						if (similarity < threshold)
+						if (!featuresMatch(record, citeseerAuthorKeys, citeseerVenueKey, result))
 						{
 							continue;
 						}
-					}
 						
-					if (Config.MATCH_AUTHORS && !MatchingHelper.isAuthorsInclusionChecked(record, result))
-					{
-						continue;
+						if (similarity > highestJaccardSimilarity)
+						{
+							bestMatch = result;
+							highestJaccardSimilarity = similarity;
+						}
 					}
-					
-					if (Config.MATCH_PAGE_COUNT && !MatchingHelper.pageCountMatches(record, result))
+				}
+			}
+			while (results.size() > 0 && start < Math.min(results.getNumFound(), maxHits));
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while getting best DBLP match for paper '" + record.getDoi() + "'");
+		}
+		
+		matchResult.numberOfHits += numberOfHits;
+		
+		
+		return bestMatch;
+	}
+
+
+	/**
+	 * returns the first DBLP entry with the same normalized title that passes the enabled author, page and venue checks,
+	 * null if there is none
+	 * <br> if MATCH_TITLE is enabled, its title similarity must also reach the threshold, as for the hits of the title query
+	 * <br> the entries are found by their fingerprint, titles of other entries with the same fingerprint are told apart
+	 * <br> at most one page of them is compared (MAX_HITS if lower), generic titles shared by more entries are left to the title query
+	 */
+	private SolrDocument getExactMatch(Document record, double threshold, List<String> citeseerAuthorKeys, String citeseerVenueKey, MatchResult matchResult)
+	{
+		String normalizedTitle = MatchingHelper.normalizeTitle(record.getTitle());
+		long fingerprint = MatchingHelper.getTitleFingerprint(normalizedTitle);
+		
+		if (fingerprint == 0)
+		{
+			return null;
+		}
+		
+		exactLookups.incrementAndGet();
+		
+		int frequency = titleFingerprints.getFrequency(fingerprint);
+		
+		if (frequency == 0)
+		{
+			return null;
+		}
+		
+		SolrQuery query = createCandidateQuery(record, Field.TITLE_FINGERPRINT.toString().toLowerCase() + ":" + MatchingHelper.formatTitleFingerprint(fingerprint));
+		query.setStart(0);
+		query.setRows(Math.min(frequency, Config.MAX_HITS > 0 ? Math.min(Config.MAX_HITS, Config.HITS_PAGE_SIZE) : Config.HITS_PAGE_SIZE));
+		
+		SolrDocumentList results = queryIndex(query);
+		
+		// computed only once a candidate has the same normalized title
+		List<String> citeseerTitleTokens = null;
+		boolean isCosine = MatchingHelper.Similarity.COSINE.toString().equals(Config.SIMILARITY.toUpperCase());
+		
+		for (SolrDocument result : results)
+		{
+			Object dblpTitle = result.getFieldValue(Field.TITLE.toString().toLowerCase());
+			
+			if (dblpTitle instanceof String && normalizedTitle.equals(MatchingHelper.normalizeTitle((String)dblpTitle))
+					&& featuresMatch(record, citeseerAuthorKeys, citeseerVenueKey, result))
+			{
+				if (Config.MATCH_TITLE)
+				{
+					if (citeseerTitleTokens == null)
 					{
-						continue;
+						citeseerTitleTokens = MatchingHelper.getTitleTokens(record.getTitle());
 					}
 					
-					if (Config.MATCH_VENUE && !MatchingHelper.venueMatches(record, result))
+					if (computeTitleSimilarity(record.getTitle(), citeseerTitleTokens, MatchingHelper.countDistinctTokens(citeseerTitleTokens),
+							result, threshold, isCosine) < threshold)
 					{
 						continue;
 					}
-						
-					if (similarity > highestJaccardSimilarity)
-					{
-						bestMatch = result;
-						highestJaccardSimilarity = similarity;
-					}
 				}
+				
+				exactMatches.incrementAndGet();
+				
+				matchResult.numberOfHits = results.getNumFound();
+				
+				return result;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * creates the query for the candidate DBLP entries, restricted to the years around the paper year if MATCH_YEAR is enabled
+	 */
+	private SolrQuery createCandidateQuery(Document record, String candidateQuery)
+	{
+		SolrQuery query = new SolrQuery();
+		query.setQuery(candidateQuery);
+		query.setFields(candidateFields);
+		
+		if (Config.MATCH_YEAR)
+		{
+			String yearFilterQuery = MatchingHelper.createYearFilterQuery(record.getYear());
+			
+			if (yearFilterQuery != null)
+			{
+				query.addFilterQuery(yearFilterQuery);
+			}
+		}
+		
+		return query;
+	}
+	
+	/**
+	 * returns true if the DBLP entry passes the enabled author, page count and venue checks
+	 */
+	private static boolean featuresMatch(Document record, List<String> citeseerAuthorKeys, String citeseerVenueKey, SolrDocument result)
+	{
+		if (Config.MATCH_AUTHORS && !MatchingHelper.isAuthorsInclusionChecked(record, citeseerAuthorKeys, result))
+		{
+			return false;
+		}
+		
+		if (Config.MATCH_PAGE_COUNT && !MatchingHelper.pageCountMatches(record, result))
+		{
+			return false;
+		}
+		
+		if (Config.MATCH_VENUE && !MatchingHelper.venueMatches(record, citeseerVenueKey, result))
+		{
+			return false;
+		}
+		
+		return true;
+	}
+
+	/**
+	 * returns a page of hits, from the candidate cache or the query cache if they have them,
+	 * exits if the index cannot be queried
+	 */
+	private SolrDocumentList queryIndex(final SolrQuery query)
+	{
+		try
+		{
+			if (candidateCache == null)
+			{
+				return loadHits(query);
 			}
+			
+			return candidateCache.get(query.toString(), new Callable<SolrDocumentList>()
+			{
+				public SolrDocumentList call() throws Exception
+				{
+					return loadHits(query);
+				}
+			});
 		}
 		catch (Exception ex)
 		{
-			MatchingHelper.logMessage(ex, "ERROR while getting best DBLP match for paper '" + record.getDoi() + "'");
+			MatchingHelper.logMessage(ex, "ERROR while getting response from the index");
+			System.exit(1);
 		}
 		
-		return bestMatch;
+		return null;
+	}
+	
+	/**
+	 * returns a page of hits, from the query cache if it has them
+	 */
+	private SolrDocumentList loadHits(SolrQuery query) throws Exception
+	{
+		if (queryCache == null)
+		{
+			return backend.query(query);
+		}
+		
+		long version = getIndexVersion();
+		
+		SolrDocumentList results = queryCache.get(query, version);
+		
+		if (results == null)
+		{
+			results = backend.query(query);
+			queryCache.put(query, version, results);
+		}
+		
+		return results;
+	}
+
+	/**
+	 * returns the index version, the index is not expected to change while records are matched
+	 */
+	private synchronized long getIndexVersion() throws Exception
+	{
+		if (indexVersion == null)
+		{
+			indexVersion = backend.getVersion();
+		}
+		
+		return indexVersion;
 	}
 
+	/**
+	 * computes the title similarity from the title tokens stored in the index
+	 * <br> for Jaccard, the token counts bound the similarity, so entries that cannot reach the threshold are not compared;
+	 * entries indexed without title tokens are compared on their titles
+	 */
+	private double computeTitleSimilarity(String citeseerTitle, List<String> citeseerTitleTokens, int citeseerTokenCount, SolrDocument result, double threshold, boolean isCosine)
+	{
+		if (!(result.getFieldValue(Field.TITLE_TOKENS.toString().toLowerCase()) instanceof ArrayList<?>))
+		{
+			String dblpTitle = (String)result.getFieldValue(Field.TITLE.toString().toLowerCase());
+			
+			return isCosine ? Similarity.computeCosineSimilarity(citeseerTitle, dblpTitle) : Similarity.computeJaccardSimilarity(citeseerTitle, dblpTitle);
+		}
+		
+		@SuppressWarnings("unchecked")
+		List<String> dblpTitleTokens = (ArrayList<String>)result.getFieldValue(Field.TITLE_TOKENS.toString().toLowerCase());
+		
+		if (isCosine)
+		{
+			return Similarity.computeCosineSimilarity(citeseerTitleTokens, dblpTitleTokens);
+		}
+		
+		if (result.getFieldValue(Field.TITLE_TOKEN_COUNT.toString().toLowerCase()) instanceof Integer)
+		{
+			int dblpTokenCount = (Integer)result.getFieldValue(Field.TITLE_TOKEN_COUNT.toString().toLowerCase());
+			
+			// |A and B| / |A or B| <= min(|A|, |B|) / max(|A|, |B|)
+			if (Math.min(citeseerTokenCount, dblpTokenCount) < threshold * Math.max(citeseerTokenCount, dblpTokenCount))
+			{
+				return 0;
+			}
+		}
+		
+		return Similarity.computeJaccardSimilarity(citeseerTitleTokens, dblpTitleTokens);
+	}
 
 	/**
 	 * returns all documents (DBLP indexed entries) for which the last names of the authors list includes the CiteSeer authors last names' list  
@@ -0,0 +1,292 @@
+package main;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.protocol.HttpContext;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.impl.ConcurrentUpdateSolrServer;
+import org.apache.solr.client.solrj.impl.HttpClientUtil;
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.apache.solr.client.solrj.request.CoreAdminRequest;
+import org.apache.solr.client.solrj.request.LukeRequest;
+import org.apache.solr.client.solrj.response.TermsResponse;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.ModifiableSolrParams;
+
+/**
+ * index stored in a Solr server, accessed over HTTP
+ * <br> requests share a pool of persistent connections, sized for the concurrent query threads
+ */
+public class SolrIndexBackend implements MergeableIndexBackend
+{
+	private static final String DELETE_QUERY = "*:*";
+
+	// request handler of the terms component, as defined in the example solrconfig.xml
+	private static final String TERMS_HANDLER = "/terms";
+
+	// number of terms requested at once when reading document frequencies
+	private static final int TERMS_PAGE_SIZE = 100000;
+
+	private final String baseUrl;
+
+	// pooled client used for queries and synchronous updates
+	private HttpClient httpClient;
+
+	private HttpSolrServer server;
+
+	// asynchronous update client, used only in bulk-load mode
+	private BulkUpdateServer bulkUpdateServer;
+
+	public SolrIndexBackend(String baseUrl)
+	{
+		this.baseUrl = baseUrl;
+
+		httpClient = createHttpClient();
+		server = new HttpSolrServer(baseUrl, httpClient);
+
+		if (Config.BUILD_INDEX && Config.BULK_LOAD)
+		{
+			bulkUpdateServer = new BulkUpdateServer(baseUrl);
+		}
+	}
+
+	/**
+	 * adds the documents through the bulk-load client if there is one, using commitWithin if set
+	 */
+	public void add(Collection<SolrInputDocument> docs) throws Exception
+	{
+		checkBulkUpdateError();
+
+		SolrServer updateServer = bulkUpdateServer != null ? bulkUpdateServer : server;
+
+		if (Config.COMMIT_WITHIN > 0)
+		{
+			updateServer.add(docs, Config.COMMIT_WITHIN);
+		}
+		else
+		{
+			updateServer.add(docs);
+		}
+	}
+
+	public void softCommit() throws Exception
+	{
+		server.commit(false, false, true);
+	}
+
+	public void commit() throws Exception
+	{
+		if (bulkUpdateServer != null)
+		{
+			bulkUpdateServer.blockUntilFinished();
+		}
+
+		checkBulkUpdateError();
+
+		server.commit();
+	}
+
+	/**
+	 * fails if an asynchronous update failed, its documents were not indexed
+	 */
+	private void checkBulkUpdateError() throws Exception
+	{
+		if (bulkUpdateServer != null && bulkUpdateServer.error != null)
+		{
+			throw new Exception("Asynchronous update to '" + baseUrl + "' failed", bulkUpdateServer.error);
+		}
+	}
+
+	public void optimize() throws Exception
+	{
+		server.optimize();
+	}
+
+	public void deleteById(List<String> ids) throws Exception
+	{
+		server.deleteById(ids);
+	}
+
+	public void deleteAll() throws Exception
+	{
+		server.deleteByQuery(DELETE_QUERY);
+	}
+
+	/**
+	 * merges the cores of the given indexes into this core, all of them must belong to the same Solr instance
+	 */
+	public void addIndexes(List<IndexBackend> indexes) throws Exception
+	{
+		String[] cores = new String[indexes.size()];
+
+		for (int i = 0; i < cores.length; i++)
+		{
+			cores[i] = ((SolrIndexBackend)indexes.get(i)).getCoreName();
+		}
+
+		server.deleteByQuery(DELETE_QUERY);
+		server.commit();
+
+		HttpSolrServer adminServer = new HttpSolrServer(baseUrl.substring(0, baseUrl.lastIndexOf('/')));
+
+		try
+		{
+			CoreAdminRequest.mergeIndexes(getCoreName(), new String[0], cores, adminServer);
+		}
+		finally
+		{
+			adminServer.shutdown();
+		}
+
+		server.commit();
+	}
+
+	public SolrDocumentList query(SolrQuery query) throws Exception
+	{
+		return server.query(query).getResults();
+	}
+
+	/**
+	 * returns the index version reported by the Luke request handler, without listing the terms of the fields
+	 */
+	public long getVersion() throws Exception
+	{
+		LukeRequest request = new LukeRequest();
+		request.addField(MatchingHelper.Field.ID.toString().toLowerCase());
+		request.setNumTerms(0);
+
+		return ((Number)request.process(server).getIndexInfo().get("version")).longValue();
+	}
+
+	/**
+	 * reads the terms of the field in index order, a page at a time, through the terms component
+	 * <br> the frequencies include deleted documents until their segments are merged
+	 */
+	public Map<String, Integer> getDocumentFrequencies(String field) throws Exception
+	{
+		Map<String, Integer> frequencies = new HashMap<String, Integer>();
+
+		String lower = "";
+
+		while (true)
+		{
+			SolrQuery query = new SolrQuery();
+			query.setRequestHandler(TERMS_HANDLER);
+			query.setTerms(true);
+			query.addTermsField(field);
+			query.setTermsLower(lower);
+			query.setTermsLowerInclusive(false);
+			query.setTermsLimit(TERMS_PAGE_SIZE);
+			query.setTermsMinCount(1);
+			query.setTermsSortString("index");
+
+			TermsResponse response = server.query(query).getTermsResponse();
+			List<TermsResponse.Term> terms = response != null ? response.getTerms(field) : null;
+
+			if (terms == null || terms.isEmpty())
+			{
+				break;
+			}
+
+			for (TermsResponse.Term term : terms)
+			{
+				frequencies.put(term.getTerm(), (int)term.getFrequency());
+			}
+
+			if (terms.size() < TERMS_PAGE_SIZE)
+			{
+				break;
+			}
+
+			lower = terms.get(terms.size() - 1).getTerm();
+		}
+
+		return frequencies;
+	}
+
+	/**
+	 * returns the core name, the last segment of the core url
+	 */
+	private String getCoreName()
+	{
+		return baseUrl.substring(baseUrl.lastIndexOf('/') + 1);
+	}
+
+	public void close()
+	{
+		if (bulkUpdateServer != null)
+		{
+			bulkUpdateServer.shutdown();
+		}
+
+		server.shutdown();
+
+		// the server does not release a client it was given
+		httpClient.getConnectionManager().shutdown();
+	}
+
+	/**
+	 * creates the pooled client, idle connections are kept alive for the timeout of the server's Keep-Alive header,
+	 * or KEEP_ALIVE ms if it sends none
+	 */
+	private static HttpClient createHttpClient()
+	{
+		ModifiableSolrParams params = new ModifiableSolrParams();
+		params.set(HttpClientUtil.PROP_MAX_CONNECTIONS, Config.MAX_CONNECTIONS);
+		params.set(HttpClientUtil.PROP_MAX_CONNECTIONS_PER_HOST, Config.MAX_CONNECTIONS);
+		params.set(HttpClientUtil.PROP_CONNECTION_TIMEOUT, Config.CONNECTION_TIMEOUT);
+		params.set(HttpClientUtil.PROP_SO_TIMEOUT, Config.SOCKET_TIMEOUT);
+		params.set(HttpClientUtil.PROP_FOLLOW_REDIRECTS, false);
+
+		DefaultHttpClient client = (DefaultHttpClient)HttpClientUtil.createClient(params);
+
+		client.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy()
+		{
+			@Override
+			public long getKeepAliveDuration(HttpResponse response, HttpContext context)
+			{
+				long duration = super.getKeepAliveDuration(response, context);
+
+				return duration >= 0 ? duration : Config.KEEP_ALIVE;
+			}
+		});
+
+		return client;
+	}
+
+	/**
+	 * asynchronous update client, keeps the first failure of its update threads
+	 */
+	private static class BulkUpdateServer extends ConcurrentUpdateSolrServer
+	{
+		private static final long serialVersionUID = 1L;
+
+		// first failure of the asynchronous updates, reported by the next add or commit
+		private volatile Throwable error;
+
+		BulkUpdateServer(String baseUrl)
+		{
+			super(baseUrl, Config.UPDATE_QUEUE_SIZE, Config.UPDATE_THREADS);
+		}
+
+		@Override
+		public void handleError(Throwable ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while indexing DBLP files");
+
+			if (error == null)
+			{
+				error = ex;
+			}
+		}
+	}
+}
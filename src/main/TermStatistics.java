@@ -0,0 +1,161 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * document frequencies of the title tokens, read from the index and kept in a local file between runs
+ * <br> the file starts with the field and the index version it was read from, it is read again from the index
+ * when either of them changes; each following line holds a token and its frequency, separated by a tab
+ */
+public class TermStatistics
+{
+	private static final Charset UTF8 = Charset.forName("UTF8");
+
+	private static final String SEPARATOR = "\t";
+
+	private final Map<String, Integer> frequencies;
+
+	private TermStatistics(Map<String, Integer> frequencies)
+	{
+		this.frequencies = frequencies;
+	}
+
+	/**
+	 * returns the frequencies of the field's tokens in the current index, from the file if it is up to date
+	 * <br> the file is not used if its path is empty
+	 */
+	public static TermStatistics load(IndexBackend backend, String field, String filePath) throws Exception
+	{
+		long start = System.currentTimeMillis();
+
+		String header = field + SEPARATOR + backend.getVersion();
+
+		File file = "".equals(filePath) ? null : new File(filePath);
+
+		Map<String, Integer> frequencies = file != null && file.exists() ? read(file, header) : null;
+
+		if (frequencies != null)
+		{
+			MatchingHelper.logMessage(null, "Read " + frequencies.size() + " '" + field + "' term frequencies from '" + filePath + "' in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		else
+		{
+			frequencies = backend.getDocumentFrequencies(field);
+
+			MatchingHelper.logMessage(null, "Read " + frequencies.size() + " '" + field + "' term frequencies from the index in " + (System.currentTimeMillis() - start) + " ms");
+
+			if (file != null)
+			{
+				write(file, header, frequencies);
+			}
+		}
+
+		return new TermStatistics(frequencies);
+	}
+
+	/**
+	 * returns the number of indexed titles containing the token, 0 for tokens that are not indexed
+	 */
+	public int getDocumentFrequency(String token)
+	{
+		Integer frequency = frequencies.get(token);
+
+		return frequency != null ? frequency : 0;
+	}
+
+	public boolean contains(String token)
+	{
+		return frequencies.containsKey(token);
+	}
+
+	/**
+	 * returns the frequencies in the file, null if it was written for another field or index version
+	 */
+	private static Map<String, Integer> read(File file, String header)
+	{
+		Map<String, Integer> frequencies = new HashMap<String, Integer>();
+
+		try
+		{
+			BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+
+			try
+			{
+				if (!header.equals(in.readLine()))
+				{
+					return null;
+				}
+
+				String line;
+
+				while ((line = in.readLine()) != null)
+				{
+					int separatorIndex = line.lastIndexOf(SEPARATOR);
+
+					frequencies.put(line.substring(0, separatorIndex), Integer.parseInt(line.substring(separatorIndex + 1)));
+				}
+			}
+			finally
+			{
+				in.close();
+			}
+
+			return frequencies;
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while reading term statistics file '" + file.getPath() + "'");
+		}
+
+		return null;
+	}
+
+	/**
+	 * writes the frequencies to a temporary file that then replaces the file, so that a partial file is never read
+	 */
+	private static void write(File file, String header, Map<String, Integer> frequencies)
+	{
+		try
+		{
+			File folder = file.getAbsoluteFile().getParentFile();
+			folder.mkdirs();
+
+			File tempFile = File.createTempFile(file.getName(), ".tmp", folder);
+
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), UTF8));
+
+			try
+			{
+				out.write(header);
+				out.newLine();
+
+				for (Map.Entry<String, Integer> entry : frequencies.entrySet())
+				{
+					out.write(entry.getKey() + SEPARATOR + entry.getValue());
+					out.newLine();
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while writing term statistics file '" + file.getPath() + "'");
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+
+import main.MatchingHelper.Field;
+
+/**
+ * fingerprints of the normalized DBLP titles, computed at indexing time and held in memory as a sorted array
+ * <br> a CiteSeer title whose fingerprint is missing has no exact DBLP match, so only the others are looked up;
+ * the number of entries sharing a fingerprint is kept to size that lookup
+ * <br> the table is read from the index terms and kept in a local file between runs, tagged with the index version
+ */
+public class TitleFingerprints
+{
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final long[] fingerprints;
+	private final int[] frequencies;
+
+	private TitleFingerprints(long[] fingerprints, int[] frequencies)
+	{
+		this.fingerprints = fingerprints;
+		this.frequencies = frequencies;
+	}
+
+	/**
+	 * returns the fingerprints of the current index, from the file if it is up to date
+	 * <br> the file is not used if its path is empty
+	 */
+	public static TitleFingerprints load(IndexBackend backend, String filePath) throws Exception
+	{
+		long start = System.currentTimeMillis();
+
+		String header = Field.TITLE_FINGERPRINT + "\t" + backend.getVersion();
+
+		File file = "".equals(filePath) ? null : new File(filePath);
+
+		TitleFingerprints table = file != null && file.exists() ? read(file, header) : null;
+
+		if (table != null)
+		{
+			MatchingHelper.logMessage(null, "Read " + table.size() + " title fingerprints from '" + filePath + "' in " + (System.currentTimeMillis() - start) + " ms");
+
+			return table;
+		}
+
+		Map<String, Integer> terms = backend.getDocumentFrequencies(Field.TITLE_FINGERPRINT.toString().toLowerCase());
+
+		long[] fingerprints = new long[terms.size()];
+		int i = 0;
+
+		for (String term : terms.keySet())
+		{
+			fingerprints[i++] = parseFingerprint(term);
+		}
+
+		Arrays.sort(fingerprints);
+
+		int[] frequencies = new int[fingerprints.length];
+
+		for (Map.Entry<String, Integer> entry : terms.entrySet())
+		{
+			frequencies[Arrays.binarySearch(fingerprints, parseFingerprint(entry.getKey()))] = entry.getValue();
+		}
+
+		table = new TitleFingerprints(fingerprints, frequencies);
+
+		MatchingHelper.logMessage(null, "Read " + table.size() + " title fingerprints from the index in " + (System.currentTimeMillis() - start) + " ms");
+
+		if (file != null)
+		{
+			table.write(file, header);
+		}
+
+		return table;
+	}
+
+	/**
+	 * returns the number of DBLP entries indexed with the fingerprint, 0 if there is none
+	 * <br> entries deleted since their segment was last merged are still counted
+	 */
+	public int getFrequency(long fingerprint)
+	{
+		int index = Arrays.binarySearch(fingerprints, fingerprint);
+
+		return index >= 0 ? frequencies[index] : 0;
+	}
+
+	public int size()
+	{
+		return fingerprints.length;
+	}
+
+	/**
+	 * parses the 16 hexadecimal digits of an indexed fingerprint, which may not fit in a signed long
+	 */
+	private static long parseFingerprint(String term)
+	{
+		return Long.parseLong(term.substring(0, 8), 16) << 32 | Long.parseLong(term.substring(8), 16);
+	}
+
+	/**
+	 * returns the table in the file, null if it was written for another index version
+	 */
+	private static TitleFingerprints read(File file, String header)
+	{
+		try
+		{
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+
+			try
+			{
+				if (!header.equals(in.readUTF()))
+				{
+					return null;
+				}
+
+				long[] fingerprints = new long[in.readInt()];
+				int[] frequencies = new int[fingerprints.length];
+
+				for (int i = 0; i < fingerprints.length; i++)
+				{
+					fingerprints[i] = in.readLong();
+					frequencies[i] = in.readInt();
+				}
+
+				return new TitleFingerprints(fingerprints, frequencies);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while reading title fingerprints file '" + file.getPath() + "'");
+		}
+
+		return null;
+	}
+
+	/**
+	 * writes the table to a temporary file that then replaces the file, so that a partial file is never read
+	 */
+	private void write(File file, String header)
+	{
+		try
+		{
+			File folder = file.getAbsoluteFile().getParentFile();
+			folder.mkdirs();
+
+			File tempFile = File.createTempFile(file.getName(), ".tmp", folder);
+
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE));
+
+			try
+			{
+				out.writeUTF(header);
+				out.writeInt(fingerprints.length);
+
+				for (int i = 0; i < fingerprints.length; i++)
+				{
+					out.writeLong(fingerprints[i]);
+					out.writeInt(frequencies[i]);
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (Exception ex)
+		{
+			MatchingHelper.logMessage(ex, "ERROR while writing title fingerprints file '" + file.getPath() + "'");
+		}
+	}
+}